@@ -0,0 +1,143 @@
+package cs21120.depq.jmh;
+
+import cs21120.depq.DEPQ;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures filling an empty queue with size elements and draining a full
+ * queue from either end. Each invocation is timed on its own since the queue
+ * has to be rebuilt between invocations; divide by size for the cost of each
+ * add, getLeast or getMost.
+ *
+ * @author Darren White
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+public class BulkBenchmark {
+
+	@Param
+	public Implementation impl;
+
+	@Param({"1000", "100000", "10000000", "100000000"})
+	public int size;
+
+	/**
+	 * The values to fill the queue with
+	 */
+	private Integer[] values;
+
+	/**
+	 * The queue being measured
+	 */
+	private DEPQ<Integer> depq;
+
+	@Setup(Level.Trial)
+	public void createValues() {
+		values = Implementation.randomValues(size, 1);
+	}
+
+	/**
+	 * Creates an empty queue for the fill benchmarks
+	 * and a full queue for the drain benchmarks
+	 */
+	@Setup(Level.Invocation)
+	public void createQueue() {
+		depq = impl.create();
+	}
+
+	/**
+	 * Adds every value one at a time
+	 *
+	 * @return returns the queue
+	 */
+	@Benchmark
+	public DEPQ<Integer> fill() {
+		for (Integer value : values) {
+			depq.add(value);
+		}
+
+		return depq;
+	}
+
+	/**
+	 * Adds every value using the bulk add of the implementation
+	 *
+	 * @return returns the queue
+	 */
+	@Benchmark
+	public DEPQ<Integer> fillBulk() {
+		impl.addAll(depq, values);
+
+		return depq;
+	}
+
+	/**
+	 * Removes every element with getLeast
+	 *
+	 * @param full a queue filled with every value
+	 * @return returns the last element
+	 */
+	@Benchmark
+	public Integer drainLeast(FullQueue full) {
+		Integer last = null;
+
+		while (!full.depq.isEmpty()) {
+			last = full.depq.getLeast();
+		}
+
+		return last;
+	}
+
+	/**
+	 * Removes every element with getMost
+	 *
+	 * @param full a queue filled with every value
+	 * @return returns the last element
+	 */
+	@Benchmark
+	public Integer drainMost(FullQueue full) {
+		Integer last = null;
+
+		while (!full.depq.isEmpty()) {
+			last = full.depq.getMost();
+		}
+
+		return last;
+	}
+
+	/**
+	 * A queue which is filled before every invocation
+	 * so filling it is not measured
+	 */
+	@State(Scope.Thread)
+	public static class FullQueue {
+
+		/**
+		 * The filled queue
+		 */
+		DEPQ<Integer> depq;
+
+		@Setup(Level.Invocation)
+		public void fill(BulkBenchmark benchmark) {
+			depq = benchmark.impl.create();
+			benchmark.impl.addAll(depq, benchmark.values);
+		}
+	}
+}
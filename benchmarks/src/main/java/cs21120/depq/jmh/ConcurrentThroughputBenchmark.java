@@ -0,0 +1,108 @@
+package cs21120.depq.jmh;
+
+import cs21120.depq.ConcurrentSkipListDEPQ;
+import cs21120.depq.DEPQ;
+import cs21120.depq.Daw48DEPQ;
+import cs21120.depq.MultiQueueDEPQ;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of DEPQ implementations shared by many producer
+ * and consumer threads. Producers add random elements and consumers remove
+ * from the least or the most end. The baseline is a Daw48DEPQ where every
+ * method holds a single global lock, which is how a non thread-safe DEPQ has
+ * to be shared. The score of the group is the total number of operations per
+ * second, and the score of each method is shown under it.
+ * <p>
+ * There are four producers for each consumer at each end by default, change
+ * the number of threads with -tg, e.g. -tg 32,4,4. The producers are faster
+ * than the consumers so the queue grows during an iteration, and it is
+ * created again for every iteration.
+ *
+ * @author Darren White
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class ConcurrentThroughputBenchmark {
+
+	/**
+	 * How many elements are in the queue before measuring
+	 * so the consumers do not start on an empty queue
+	 */
+	private static final int PREFILL = 100_000;
+
+	/**
+	 * The queue to measure, LOCKED is a Daw48DEPQ behind a single lock
+	 */
+	@Param({"LOCKED", "SKIP_LIST", "MULTI_QUEUE"})
+	public String impl;
+
+	/**
+	 * The queue shared by the group
+	 */
+	private DEPQ<Integer> depq;
+
+	@Setup(Level.Iteration)
+	public void setUp(BenchmarkParams params) {
+		switch (impl) {
+			case "LOCKED":
+				depq = new SynchronizedDEPQ<>(new Daw48DEPQ<>());
+				break;
+			case "SKIP_LIST":
+				depq = new ConcurrentSkipListDEPQ<>();
+				break;
+			default:
+				depq = new MultiQueueDEPQ<>(MultiQueueDEPQ.DEFAULT_SHARDS_PER_THREAD * params.getThreads());
+				break;
+		}
+
+		SplittableRandom random = new SplittableRandom(1);
+
+		for (int i = 0; i < PREFILL; i++) {
+			depq.add(random.nextInt());
+		}
+	}
+
+	@Benchmark
+	@Group("producersConsumers")
+	@GroupThreads(4)
+	public void add() {
+		depq.add(ThreadLocalRandom.current().nextInt());
+	}
+
+	@Benchmark
+	@Group("producersConsumers")
+	@GroupThreads(1)
+	public Integer getLeast() {
+		return depq.getLeast();
+	}
+
+	@Benchmark
+	@Group("producersConsumers")
+	@GroupThreads(1)
+	public Integer getMost() {
+		return depq.getMost();
+	}
+}
@@ -0,0 +1,144 @@
+package cs21120.depq.jmh;
+
+import cs21120.depq.DEPQ;
+
+import java.util.Collections;
+import java.util.PriorityQueue;
+
+/**
+ * Baseline DEPQ made from a min PriorityQueue and a max PriorityQueue which
+ * both hold every element. An element removed from one queue is only marked
+ * as removed and is thrown away when it reaches the top of the other queue,
+ * so each element costs an entry object and two heap slots.
+ *
+ * @author Darren White
+ */
+public class DualPriorityQueueDEPQ<E extends Comparable<? super E>> implements DEPQ<E> {
+
+	/**
+	 * Every entry with the smallest at the top
+	 */
+	private final PriorityQueue<Entry<E>> min = new PriorityQueue<>();
+
+	/**
+	 * Every entry with the largest at the top
+	 */
+	private final PriorityQueue<Entry<E>> max = new PriorityQueue<>(Collections.reverseOrder());
+
+	/**
+	 * The number of elements which have not been removed
+	 */
+	private int numElements = 0;
+
+	@Override
+	public void add(E c) {
+		Entry<E> entry = new Entry<>(c);
+
+		min.add(entry);
+		max.add(entry);
+		numElements++;
+	}
+
+	@Override
+	public E getLeast() {
+		return remove(top(min));
+	}
+
+	@Override
+	public E getMost() {
+		return remove(top(max));
+	}
+
+	/**
+	 * Marks an entry as removed
+	 *
+	 * @param entry the entry at the top of one of the queues, or null
+	 * @return returns the element of the entry or null if there was no entry
+	 */
+	private E remove(Entry<E> entry) {
+		if (entry == null) {
+			return null;
+		}
+
+		entry.removed = true;
+		numElements--;
+
+		return entry.element;
+	}
+
+	/**
+	 * Throws away the removed entries at the top of a queue
+	 *
+	 * @param queue the queue
+	 * @return returns the first entry which has not been removed, or null
+	 */
+	private Entry<E> top(PriorityQueue<Entry<E>> queue) {
+		Entry<E> entry;
+
+		while ((entry = queue.poll()) != null && entry.removed) {
+			// Already removed from the other queue
+		}
+
+		return entry;
+	}
+
+	@Override
+	public E inspectLeast() {
+		return peek(min);
+	}
+
+	@Override
+	public E inspectMost() {
+		return peek(max);
+	}
+
+	/**
+	 * Throws away the removed entries at the top of a queue and
+	 * returns the element of the entry left at the top
+	 *
+	 * @param queue the queue
+	 * @return returns the element at the top or null if there is none
+	 */
+	private E peek(PriorityQueue<Entry<E>> queue) {
+		while (!queue.isEmpty() && queue.peek().removed) {
+			queue.poll();
+		}
+
+		return queue.isEmpty() ? null : queue.peek().element;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return numElements == 0;
+	}
+
+	@Override
+	public int size() {
+		return numElements;
+	}
+
+	/**
+	 * An element shared by both queues
+	 */
+	private static final class Entry<E extends Comparable<? super E>> implements Comparable<Entry<E>> {
+
+		/**
+		 * The element which was added
+		 */
+		final E element;
+
+		/**
+		 * If the element has been removed from either queue
+		 */
+		boolean removed;
+
+		Entry(E element) {
+			this.element = element;
+		}
+
+		@Override
+		public int compareTo(Entry<E> o) {
+			return element.compareTo(o.element);
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package cs21120.depq.jmh;
+
+import cs21120.depq.DEPQ;
+import cs21120.depq.Daw48DEPQ;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The DEPQ implementations which are compared by the benchmarks, chosen
+ * with the impl parameter
+ *
+ * @author Darren White
+ */
+public enum Implementation {
+
+	/**
+	 * The interval heap
+	 */
+	Daw48DEPQ {
+		@Override
+		DEPQ<Integer> create() {
+			return new Daw48DEPQ<>();
+		}
+
+		@Override
+		void addAll(DEPQ<Integer> depq, Integer[] values) {
+			// Appends everything and rebuilds the heap in O(n)
+			((Daw48DEPQ<Integer>) depq).addAll(values);
+		}
+	},
+
+	/**
+	 * A red-black tree counting copies of each element
+	 */
+	TreeMap {
+		@Override
+		DEPQ<Integer> create() {
+			return new TreeMapDEPQ<>();
+		}
+	},
+
+	/**
+	 * A min and a max java.util.PriorityQueue
+	 */
+	DualPriorityQueue {
+		@Override
+		DEPQ<Integer> create() {
+			return new DualPriorityQueueDEPQ<>();
+		}
+	},
+
+	/**
+	 * A min-max heap
+	 */
+	MinMaxHeap {
+		@Override
+		DEPQ<Integer> create() {
+			return new MinMaxHeapDEPQ<>();
+		}
+	};
+
+	/**
+	 * Creates an empty queue
+	 *
+	 * @return returns the new queue
+	 */
+	abstract DEPQ<Integer> create();
+
+	/**
+	 * Adds many values to a queue using the fastest way
+	 * the implementation has, one at a time by default
+	 *
+	 * @param depq   the queue created by this implementation
+	 * @param values the values to add
+	 */
+	void addAll(DEPQ<Integer> depq, Integer[] values) {
+		for (Integer value : values) {
+			depq.add(value);
+		}
+	}
+
+	/**
+	 * Creates random boxed values for the benchmarks to add, created up front
+	 * so boxing does not show up in the allocation rate
+	 *
+	 * @param count the number of values
+	 * @param seed  the random seed
+	 * @return returns the values
+	 */
+	static Integer[] randomValues(int count, long seed) {
+		Random random = new Random(seed);
+		Integer[] values = new Integer[count];
+
+		Arrays.setAll(values, i -> random.nextInt());
+
+		return values;
+	}
+}
@@ -0,0 +1,135 @@
+package cs21120.depq.jmh;
+
+import cs21120.depq.BlockedLongDEPQ;
+import cs21120.depq.LongDEPQ;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the flat layout of LongDEPQ with the blocked layout of
+ * BlockedLongDEPQ on very large queues which stay at the same size. The
+ * blocked layout only helps once the heap is much larger than the caches and
+ * the TLB can reach, so the sizes go up to a billion values. The largest size
+ * needs about 9GB for the values; run with
+ * -jvmArgsAppend -XX:+UseTransparentHugePages to see how much of the
+ * difference comes from TLB misses.
+ *
+ * @author Darren White
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx24g")
+public class LayoutBenchmark {
+
+	/**
+	 * How many values to cycle through when adding, a power of two
+	 */
+	private static final int VALUES = 1 << 16;
+
+	/**
+	 * The layout to measure, FLAT is LongDEPQ and the others
+	 * are BlockedLongDEPQ with that block height
+	 */
+	@Param({"FLAT", "BLOCKED_4", "BLOCKED_8", "BLOCKED_12"})
+	public String layout;
+
+	@Param({"1000000", "10000000", "100000000", "1000000000"})
+	public int size;
+
+	/**
+	 * The queue being measured if the layout is FLAT
+	 */
+	private LongDEPQ flat;
+
+	/**
+	 * The queue being measured if the layout is blocked
+	 */
+	private BlockedLongDEPQ blocked;
+
+	/**
+	 * The values which are added during the benchmark
+	 */
+	private long[] values;
+
+	/**
+	 * The index of the next value to add
+	 */
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		SplittableRandom random = new SplittableRandom(1);
+
+		// Both queues are given their full size up front so the
+		// largest size does not need room for a copy while growing
+		if (layout.equals("FLAT")) {
+			flat = new LongDEPQ(size + 2);
+
+			for (int i = 0; i < size; i++) {
+				flat.addLong(random.nextLong());
+			}
+		} else {
+			blocked = new BlockedLongDEPQ(size + 2, Integer.parseInt(layout.substring("BLOCKED_".length())));
+
+			for (int i = 0; i < size; i++) {
+				blocked.addLong(random.nextLong());
+			}
+		}
+
+		values = random.longs(VALUES).toArray();
+	}
+
+	/**
+	 * Gets the next value to add
+	 *
+	 * @return returns a random value
+	 */
+	private long nextValue() {
+		return values[next++ & (VALUES - 1)];
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(2)
+	public long addGetLeast() {
+		if (flat != null) {
+			flat.addLong(nextValue());
+
+			return flat.getLeastLong();
+		}
+
+		blocked.addLong(nextValue());
+
+		return blocked.getLeastLong();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(2)
+	public long addGetMost() {
+		if (flat != null) {
+			flat.addLong(nextValue());
+
+			return flat.getMostLong();
+		}
+
+		blocked.addLong(nextValue());
+
+		return blocked.getMostLong();
+	}
+}
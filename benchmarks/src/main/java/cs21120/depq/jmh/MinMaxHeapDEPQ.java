@@ -0,0 +1,220 @@
+package cs21120.depq.jmh;
+
+import cs21120.depq.DEPQ;
+
+import java.util.Arrays;
+
+/**
+ * Baseline DEPQ using a min-max heap (Atkinson et al. 1986). The heap is a
+ * single binary heap in a flat array where the nodes on even levels are
+ * smaller than all of their descendants and the nodes on odd levels are
+ * larger than all of their descendants. The smallest element is the root and
+ * the largest is one of its children. add, getLeast and getMost are O(log n).
+ *
+ * @author Darren White
+ */
+public class MinMaxHeapDEPQ<E extends Comparable<? super E>> implements DEPQ<E> {
+
+	/**
+	 * The heap, the children of i are at 2i + 1 and 2i + 2
+	 */
+	private Object[] heap = new Object[16];
+
+	/**
+	 * The number of elements in the heap
+	 */
+	private int numElements = 0;
+
+	@Override
+	public void add(E c) {
+		if (c == null) {
+			throw new NullPointerException("Null values not allowed in DEPQ");
+		}
+
+		if (numElements == heap.length) {
+			heap = Arrays.copyOf(heap, numElements + (numElements >> 1));
+		}
+
+		int index = numElements++;
+		heap[index] = c;
+
+		if (index == 0) {
+			return;
+		}
+
+		int parent = (index - 1) >> 1;
+
+		if (isMinLevel(index)) {
+			if (compare(index, parent) > 0) {
+				swap(index, parent);
+				bubbleUp(parent, false);
+			} else {
+				bubbleUp(index, true);
+			}
+		} else if (compare(index, parent) < 0) {
+			swap(index, parent);
+			bubbleUp(parent, true);
+		} else {
+			bubbleUp(index, false);
+		}
+	}
+
+	/**
+	 * Moves an element up through its grandparents
+	 *
+	 * @param index the index of the element
+	 * @param min   true on a min level, false on a max level
+	 */
+	private void bubbleUp(int index, boolean min) {
+		// Grandparents exist from index 3
+		while (index > 2) {
+			int grandparent = (((index - 1) >> 1) - 1) >> 1;
+			int c = compare(index, grandparent);
+
+			if (min ? c >= 0 : c <= 0) {
+				break;
+			}
+
+			swap(index, grandparent);
+			index = grandparent;
+		}
+	}
+
+	@Override
+	public E getLeast() {
+		return numElements == 0 ? null : removeAt(0, true);
+	}
+
+	@Override
+	public E getMost() {
+		return numElements == 0 ? null : removeAt(maxIndex(), false);
+	}
+
+	/**
+	 * Removes an element from the top of the min or max levels
+	 *
+	 * @param index the index of the root or the largest child of the root
+	 * @param min   true if removing from the min level
+	 * @return returns the removed element
+	 */
+	@SuppressWarnings("unchecked")
+	private E removeAt(int index, boolean min) {
+		E c = (E) heap[index];
+		int last = --numElements;
+
+		heap[index] = heap[last];
+		heap[last] = null;
+
+		if (index < last) {
+			trickleDown(index, min);
+		}
+
+		return c;
+	}
+
+	/**
+	 * Moves an element down to the smallest (or largest) of its children
+	 * and grandchildren
+	 *
+	 * @param index the index of the element
+	 * @param min   true on a min level, false on a max level
+	 */
+	private void trickleDown(int index, boolean min) {
+		int sign = min ? 1 : -1;
+
+		while ((index << 1) + 1 < numElements) {
+			// Find the best of the children and grandchildren
+			int first = (index << 1) + 1;
+			int best = first;
+
+			if (first + 1 < numElements && sign * compare(first + 1, best) < 0) {
+				best = first + 1;
+			}
+
+			// The four grandchildren are next to each other
+			int grandchild = (first << 1) + 1;
+
+			for (int i = grandchild; i < grandchild + 4 && i < numElements; i++) {
+				if (sign * compare(i, best) < 0) {
+					best = i;
+				}
+			}
+
+			if (sign * compare(best, index) >= 0) {
+				return;
+			}
+
+			swap(best, index);
+
+			// A child is on the other kind of level so we can stop
+			if (best <= first + 1) {
+				return;
+			}
+
+			// Keep the grandchild in order with its parent
+			int parent = (best - 1) >> 1;
+
+			if (sign * compare(best, parent) > 0) {
+				swap(best, parent);
+			}
+
+			index = best;
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public E inspectLeast() {
+		return numElements == 0 ? null : (E) heap[0];
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public E inspectMost() {
+		return numElements == 0 ? null : (E) heap[maxIndex()];
+	}
+
+	/**
+	 * Gets the index of the largest element
+	 *
+	 * @return returns the root or the largest child of the root
+	 */
+	private int maxIndex() {
+		if (numElements <= 2) {
+			return numElements - 1;
+		}
+
+		return compare(1, 2) >= 0 ? 1 : 2;
+	}
+
+	/**
+	 * Checks if an index is on a min level
+	 *
+	 * @param index the index
+	 * @return returns true if the depth of the index is even
+	 */
+	private static boolean isMinLevel(int index) {
+		return ((31 - Integer.numberOfLeadingZeros(index + 1)) & 1) == 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	private int compare(int i, int j) {
+		return ((E) heap[i]).compareTo((E) heap[j]);
+	}
+
+	private void swap(int i, int j) {
+		Object tmp = heap[i];
+		heap[i] = heap[j];
+		heap[j] = tmp;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return numElements == 0;
+	}
+
+	@Override
+	public int size() {
+		return numElements;
+	}
+}
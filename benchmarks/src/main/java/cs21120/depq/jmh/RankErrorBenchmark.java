@@ -0,0 +1,123 @@
+package cs21120.depq.jmh;
+
+import cs21120.depq.MultiQueueDEPQ;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the rank error of getLeast on a MultiQueueDEPQ, which is how many
+ * smaller elements are still in the queue when an element is removed. The
+ * queue holds 0 to size - 1, so the rank of each removed element is the
+ * number of smaller elements which have not been removed yet. The rankError
+ * counter is the total error of every removal and the removals counter is the
+ * number of removals, so the mean rank error is one divided by the other. The
+ * time includes working out the ranks so it is not meaningful.
+ *
+ * @author Darren White
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, batchSize = 10_000)
+@Measurement(iterations = 5, batchSize = 10_000)
+@Fork(1)
+public class RankErrorBenchmark {
+
+	/**
+	 * The number of shards, two for each thread by default
+	 */
+	@Param({"2", "8", "32", "128"})
+	public int shards;
+
+	@Param({"1000000"})
+	public int size;
+
+	/**
+	 * The queue being measured
+	 */
+	private MultiQueueDEPQ<Integer> depq;
+
+	/**
+	 * Which elements have been removed
+	 */
+	private boolean[] removed;
+
+	/**
+	 * The smallest element which has not been removed
+	 */
+	private int smallest;
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		depq = new MultiQueueDEPQ<>(shards);
+		removed = new boolean[size];
+		smallest = 0;
+
+		for (int i = 0; i < size; i++) {
+			depq.add(i);
+		}
+	}
+
+	/**
+	 * The rank error of the removals in an iteration
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Counters {
+
+		/**
+		 * The total number of smaller elements left behind
+		 */
+		public long rankError;
+
+		/**
+		 * The number of removals
+		 */
+		public long removals;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			rankError = 0;
+			removals = 0;
+		}
+	}
+
+	/**
+	 * Removes the least element and adds its rank error to the counters
+	 *
+	 * @param counters the counters of the iteration
+	 * @return returns the removed element
+	 */
+	@Benchmark
+	public int getLeast(Counters counters) {
+		int c = depq.getLeast();
+
+		for (int j = smallest; j < c; j++) {
+			if (!removed[j]) {
+				counters.rankError++;
+			}
+		}
+
+		removed[c] = true;
+		counters.removals++;
+
+		while (smallest < size && removed[smallest]) {
+			smallest++;
+		}
+
+		return c;
+	}
+}
@@ -0,0 +1,92 @@
+package cs21120.depq.jmh;
+
+import cs21120.depq.DEPQ;
+import cs21120.depq.Daw48DEPQ;
+import cs21120.depq.MultiQueueDEPQ;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how the throughput of a shared DEPQ grows with the number of
+ * threads. Every thread adds a random element and then removes one from
+ * alternate ends, so the queue stays at the same size. The relaxed
+ * MultiQueueDEPQ, with two shards for each thread, is compared with a
+ * Daw48DEPQ behind a single lock. Every processor is used by default; run
+ * once for each thread count to see the scaling, e.g.
+ * <pre>
+ * for t in 1 2 4 8 16 32 64; do java -jar benchmarks.jar ScalingBenchmark -t $t; done
+ * </pre>
+ * The rank error which the MultiQueueDEPQ pays for its throughput is
+ * measured by RankErrorBenchmark.
+ *
+ * @author Darren White
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(Threads.MAX)
+public class ScalingBenchmark {
+
+	/**
+	 * The queue to measure, LOCKED is a Daw48DEPQ behind a single
+	 * lock and MULTI_QUEUE is a MultiQueueDEPQ
+	 */
+	@Param({"LOCKED", "MULTI_QUEUE"})
+	public String impl;
+
+	@Param({"1000000"})
+	public int size;
+
+	/**
+	 * The queue shared by every thread
+	 */
+	private DEPQ<Integer> depq;
+
+	@Setup(Level.Trial)
+	public void setUp(BenchmarkParams params) {
+		// The shards are sized for the threads actually running
+		depq = impl.equals("LOCKED") ? new SynchronizedDEPQ<>(new Daw48DEPQ<>())
+				: new MultiQueueDEPQ<>(MultiQueueDEPQ.DEFAULT_SHARDS_PER_THREAD * params.getThreads());
+
+		SplittableRandom random = new SplittableRandom(1);
+
+		for (int i = 0; i < size; i++) {
+			depq.add(random.nextInt());
+		}
+	}
+
+	/**
+	 * Adds an element and removes one from a random end
+	 *
+	 * @return returns the removed element
+	 */
+	@Benchmark
+	@OperationsPerInvocation(2)
+	public Integer addRemove() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+
+		depq.add(random.nextInt());
+
+		return random.nextBoolean() ? depq.getLeast() : depq.getMost();
+	}
+}
@@ -0,0 +1,121 @@
+package cs21120.depq.jmh;
+
+import cs21120.depq.DEPQ;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures single operations on a queue which stays at the same size.
+ * Each benchmark adds as many elements as it removes so the queue holds
+ * size elements for the whole run. Run with -prof gc to see how much each
+ * operation allocates.
+ * <p>
+ * The largest size needs a large heap, which the fork is given.
+ *
+ * @author Darren White
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+public class SteadyStateBenchmark {
+
+	/**
+	 * How many values to cycle through when adding, a power of two
+	 */
+	private static final int VALUES = 1 << 16;
+
+	@Param
+	public Implementation impl;
+
+	@Param({"1000", "100000", "10000000", "100000000"})
+	public int size;
+
+	/**
+	 * The queue being measured
+	 */
+	private DEPQ<Integer> depq;
+
+	/**
+	 * The values which are added during the benchmark
+	 */
+	private Integer[] values;
+
+	/**
+	 * The index of the next value to add
+	 */
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		depq = impl.create();
+
+		for (Integer value : Implementation.randomValues(size, 1)) {
+			depq.add(value);
+		}
+
+		values = Implementation.randomValues(VALUES, 2);
+	}
+
+	/**
+	 * Gets the next value to add
+	 *
+	 * @return returns a random value
+	 */
+	private Integer nextValue() {
+		return values[next++ & (VALUES - 1)];
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(2)
+	public Integer addGetLeast() {
+		depq.add(nextValue());
+
+		return depq.getLeast();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(2)
+	public Integer addGetMost() {
+		depq.add(nextValue());
+
+		return depq.getMost();
+	}
+
+	/**
+	 * Adds to the queue and removes from both ends in turn
+	 *
+	 * @return returns the last removed element
+	 */
+	@Benchmark
+	@OperationsPerInvocation(4)
+	public Integer mixed() {
+		depq.add(nextValue());
+		depq.getLeast();
+		depq.add(nextValue());
+
+		return depq.getMost();
+	}
+
+	@Benchmark
+	public Integer inspect() {
+		depq.inspectLeast();
+
+		return depq.inspectMost();
+	}
+}
@@ -0,0 +1,62 @@
+package cs21120.depq.jmh;
+
+import cs21120.depq.DEPQ;
+
+/**
+ * Baseline for the concurrent benchmarks which wraps a DEPQ so that every
+ * method holds the same lock, which is how a DEPQ which is not thread-safe
+ * has to be shared between threads.
+ *
+ * @author Darren White
+ */
+public class SynchronizedDEPQ<E> implements DEPQ<E> {
+
+	/**
+	 * The queue being wrapped
+	 */
+	private final DEPQ<E> depq;
+
+	/**
+	 * Create a new wrapper
+	 *
+	 * @param depq the queue to wrap
+	 */
+	public SynchronizedDEPQ(DEPQ<E> depq) {
+		this.depq = depq;
+	}
+
+	@Override
+	public synchronized void add(E c) {
+		depq.add(c);
+	}
+
+	@Override
+	public synchronized E getLeast() {
+		return depq.getLeast();
+	}
+
+	@Override
+	public synchronized E getMost() {
+		return depq.getMost();
+	}
+
+	@Override
+	public synchronized E inspectLeast() {
+		return depq.inspectLeast();
+	}
+
+	@Override
+	public synchronized E inspectMost() {
+		return depq.inspectMost();
+	}
+
+	@Override
+	public synchronized boolean isEmpty() {
+		return depq.isEmpty();
+	}
+
+	@Override
+	public synchronized int size() {
+		return depq.size();
+	}
+}
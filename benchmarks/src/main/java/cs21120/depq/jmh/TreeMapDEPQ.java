@@ -0,0 +1,87 @@
+package cs21120.depq.jmh;
+
+import cs21120.depq.DEPQ;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Baseline DEPQ which counts the copies of each element in a TreeMap
+ * (a red-black tree). Every operation is O(log n) and allocates a tree
+ * entry for each distinct element.
+ *
+ * @author Darren White
+ */
+public class TreeMapDEPQ<E> implements DEPQ<E> {
+
+	/**
+	 * The number of copies of each element
+	 */
+	private final TreeMap<E, Integer> counts = new TreeMap<>();
+
+	/**
+	 * The number of elements including copies
+	 */
+	private int numElements = 0;
+
+	@Override
+	public void add(E c) {
+		counts.merge(c, 1, Integer::sum);
+		numElements++;
+	}
+
+	@Override
+	public E getLeast() {
+		return remove(counts.firstEntry());
+	}
+
+	@Override
+	public E getMost() {
+		return remove(counts.lastEntry());
+	}
+
+	/**
+	 * Removes one copy of an element
+	 *
+	 * @param entry the element and its count, null if the queue is empty
+	 * @return returns the element or null if the queue is empty
+	 */
+	private E remove(Map.Entry<E, Integer> entry) {
+		if (entry == null) {
+			return null;
+		}
+
+		E c = entry.getKey();
+		int count = entry.getValue();
+
+		if (count == 1) {
+			counts.remove(c);
+		} else {
+			counts.put(c, count - 1);
+		}
+
+		numElements--;
+
+		return c;
+	}
+
+	@Override
+	public E inspectLeast() {
+		return counts.isEmpty() ? null : counts.firstKey();
+	}
+
+	@Override
+	public E inspectMost() {
+		return counts.isEmpty() ? null : counts.lastKey();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return numElements == 0;
+	}
+
+	@Override
+	public int size() {
+		return numElements;
+	}
+}
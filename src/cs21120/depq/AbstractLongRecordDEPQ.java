@@ -0,0 +1,497 @@
+package cs21120.depq;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.NoSuchElementException;
+
+/**
+ * An interval heap of fixed-width records which are stored in byte buffers
+ * rather than in Java objects. Each record is a 64-bit priority which orders
+ * the queue and a 64-bit payload (such as the id of the object the record
+ * stands for) which is carried along with it.
+ * <p>
+ * The layout and the algorithms are the same as in LongDEPQ: node i occupies
+ * record slot 2i (min) and slot 2i + 1 (max), and each record is 16 bytes.
+ * The records are split over segments of up to 2^22 records (64MB) because a
+ * single byte buffer cannot be larger than 2GB. While the queue is smaller than
+ * one segment it grows by replacing the segment with one twice the size, after
+ * that full-size segments are added. Subclasses decide where the segments come
+ * from and how they are freed.
+ *
+ * @author Darren White
+ */
+abstract class AbstractLongRecordDEPQ implements AutoCloseable {
+
+	/**
+	 * The number of bytes in each record, the priority followed by the payload
+	 */
+	static final int RECORD_BYTES = 16;
+
+	/**
+	 * Each full-size segment holds 2^SEGMENT_SHIFT records
+	 */
+	static final int SEGMENT_SHIFT = 22;
+
+	/**
+	 * Gets the index of a record within its segment
+	 */
+	static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+	/**
+	 * The segments holding the records, null once closed
+	 */
+	ByteBuffer[] segments = new ByteBuffer[0];
+
+	/**
+	 * The number of records which fit in the segments
+	 */
+	int capacity;
+
+	/**
+	 * Number of records in the queue, this will also
+	 * act as a pointer to the next free slot
+	 */
+	int numElements = 0;
+
+	/**
+	 * Adds a record into the queue in the correct position. The record is
+	 * placed in the next free slot and then bubbled up the min or max side
+	 * of the heap, see Daw48DEPQ.add(Object).
+	 *
+	 * @param priority the priority which orders the record
+	 * @param payload  the payload carried with the priority
+	 */
+	public void add(long priority, long payload) {
+		ensureOpen();
+
+		if (numElements == capacity) {
+			ensureCapacity(numElements + 1);
+		}
+
+		beforeUpdate();
+
+		// The slot the new record goes into
+		int index = numElements++;
+
+		// An odd slot is the right record of the last node
+		// so make sure the left record is the smallest
+		if ((index & 1) == 1 && priority(index - 1) > priority) {
+			move(index - 1, index);
+			index--;
+		}
+
+		// The heap is fine if there are only two records
+		if (numElements > 2) {
+			// Get the parent of the last node
+			int parent = ((index >> 1) - 1) >> 1 << 1;
+			int parentIndex;
+
+			if (priority(parent) > priority) {
+				// Shift the parent min records down until we find the slot
+				while (index > 1 && priority(parentIndex = ((index >> 1) - 1) >> 1 << 1) > priority) {
+					move(parentIndex, index);
+					index = parentIndex;
+				}
+			} else if (priority(parent + 1) < priority) {
+				// Shift the parent max records down until we find the slot
+				while (index > 1 && priority(parentIndex = (((index >> 1) - 1) >> 1 << 1) + 1) < priority) {
+					move(parentIndex, index);
+					index = parentIndex;
+				}
+			}
+		}
+
+		write(index, priority, payload);
+		afterUpdate();
+	}
+
+	/**
+	 * Removes the record with the smallest priority and returns its payload.
+	 * The last record is moved into the root min slot and moved down the heap,
+	 * see Daw48DEPQ.getLeast().
+	 *
+	 * @return returns the payload of the smallest record
+	 * @throws NoSuchElementException if the queue is empty
+	 */
+	public long getLeastPayload() {
+		long payload = inspectLeastPayload();
+
+		beforeUpdate();
+
+		// The last record is moved down from the root
+		int size = --numElements;
+		siftMinDown(0, priority(size), payload(size));
+		afterUpdate();
+
+		return payload;
+	}
+
+	/**
+	 * Removes the record with the largest priority and returns its payload.
+	 * The last record is moved into the root max slot and moved down the heap,
+	 * see Daw48DEPQ.getMost().
+	 *
+	 * @return returns the payload of the largest record
+	 * @throws NoSuchElementException if the queue is empty
+	 */
+	public long getMostPayload() {
+		// The only record is the max as well
+		if (numElements <= 1) {
+			return getLeastPayload();
+		}
+
+		long payload = inspectMostPayload();
+
+		beforeUpdate();
+
+		// The last record is moved down from the root
+		int size = --numElements;
+		siftMaxDown(1, priority(size), payload(size));
+		afterUpdate();
+
+		return payload;
+	}
+
+	/**
+	 * Gets the smallest priority in the queue
+	 *
+	 * @return returns the smallest priority
+	 * @throws NoSuchElementException if the queue is empty
+	 */
+	public long inspectLeastPriority() {
+		return priority(leastSlot());
+	}
+
+	/**
+	 * Gets the payload of the record with the smallest priority
+	 *
+	 * @return returns the payload of the smallest record
+	 * @throws NoSuchElementException if the queue is empty
+	 */
+	public long inspectLeastPayload() {
+		return payload(leastSlot());
+	}
+
+	/**
+	 * Gets the largest priority in the queue
+	 *
+	 * @return returns the largest priority
+	 * @throws NoSuchElementException if the queue is empty
+	 */
+	public long inspectMostPriority() {
+		return priority(mostSlot());
+	}
+
+	/**
+	 * Gets the payload of the record with the largest priority
+	 *
+	 * @return returns the payload of the largest record
+	 * @throws NoSuchElementException if the queue is empty
+	 */
+	public long inspectMostPayload() {
+		return payload(mostSlot());
+	}
+
+	/**
+	 * Gets the slot of the smallest record
+	 *
+	 * @return returns the root min slot
+	 */
+	private int leastSlot() {
+		ensureOpen();
+
+		if (numElements == 0) {
+			throw new NoSuchElementException("DEPQ is empty");
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Gets the slot of the largest record
+	 *
+	 * @return returns the root max slot, or the root min slot if it is the only record
+	 */
+	private int mostSlot() {
+		return numElements == 1 ? leastSlot() : leastSlot() + 1;
+	}
+
+	/**
+	 * Checks if the queue is empty
+	 *
+	 * @return returns true if the queue is empty
+	 */
+	public boolean isEmpty() {
+		return numElements == 0;
+	}
+
+	/**
+	 * Gets the number of records in the queue
+	 *
+	 * @return returns the number of records currently in the queue
+	 */
+	public int size() {
+		return numElements;
+	}
+
+	/**
+	 * Frees or releases the segments. The queue cannot be used afterwards.
+	 * Only subclasses which write to a file throw an IOException, so that
+	 * the others can be used in try-with-resources without catching one.
+	 *
+	 * @throws IOException if the segments cannot be released
+	 */
+	@Override
+	public abstract void close() throws IOException;
+
+	/**
+	 * Called before the records are changed by add or remove
+	 */
+	void beforeUpdate() {
+	}
+
+	/**
+	 * Called after the records have been changed by add or remove
+	 */
+	void afterUpdate() {
+	}
+
+	/**
+	 * Replaces a segment with a new one which holds a number of records.
+	 * If a smaller segment is being replaced, the records in it must be kept
+	 * and it must be freed.
+	 *
+	 * @param index   the index of the segment
+	 * @param old     the segment being replaced, or null if it is new
+	 * @param records the number of records the segment must hold
+	 * @return returns the new segment
+	 */
+	abstract ByteBuffer newSegment(int index, ByteBuffer old, int records);
+
+	/**
+	 * Makes sure the segments can hold a number of records. A single segment
+	 * which is smaller than full-size is replaced by one twice its size (or
+	 * more if needed), otherwise full-size segments are added.
+	 *
+	 * @param minCapacity the number of records the segments must hold
+	 */
+	void ensureCapacity(int minCapacity) {
+		// Grow the first segment until it is full-size
+		if (capacity < minCapacity && segments.length <= 1 && capacity <= SEGMENT_MASK) {
+			int records = Math.min(Math.max(capacity << 1, minCapacity), SEGMENT_MASK + 1);
+
+			if (segments.length == 0) {
+				segments = new ByteBuffer[1];
+			}
+
+			segments[0] = newSegment(0, segments[0], records);
+			capacity = records;
+		}
+
+		// Then add full-size segments
+		while (capacity < minCapacity) {
+			// The slots must stay within an int
+			if (capacity > Integer.MAX_VALUE - (SEGMENT_MASK + 1)) {
+				throw new IllegalStateException("DEPQ is too large");
+			}
+
+			ByteBuffer[] newSegments = new ByteBuffer[segments.length + 1];
+			System.arraycopy(segments, 0, newSegments, 0, segments.length);
+			newSegments[segments.length] = newSegment(segments.length, null, SEGMENT_MASK + 1);
+			segments = newSegments;
+			capacity += SEGMENT_MASK + 1;
+		}
+	}
+
+	/**
+	 * Checks if the records form a valid interval heap: the left record of
+	 * every node is no larger than its right record, and every node's
+	 * interval lies within its parent's interval.
+	 *
+	 * @return returns true if the records are a valid interval heap
+	 */
+	boolean isHeap() {
+		for (int i = 0; i < numElements; i++) {
+			if ((i & 1) == 1) {
+				// The right record must not be smaller than the left record
+				if (priority(i - 1) > priority(i)) {
+					return false;
+				}
+			} else if (i > 1) {
+				int parent = ((i >> 1) - 1) >> 1 << 1;
+				// A lone left record acts as the right record too
+				int max = i + 1 < numElements ? i + 1 : i;
+
+				if (priority(i) < priority(parent) || priority(max) > priority(parent + 1)) {
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Rebuilds the heap from the bottom up, see Daw48DEPQ.heapify().
+	 */
+	void heapify() {
+		// Order the left and right records of every node
+		for (int i = 0; i + 1 < numElements; i += 2) {
+			if (priority(i) > priority(i + 1)) {
+				long p = priority(i);
+				long v = payload(i);
+				move(i + 1, i);
+				write(i + 1, p, v);
+			}
+		}
+
+		// Start at the last node i which has a child, its left
+		// child's left record is at slot 4i + 2
+		for (int i = (numElements - 3) >> 2 << 1; i >= 0; i -= 2) {
+			siftMinDown(i, priority(i), payload(i));
+			siftMaxDown(i + 1, priority(i + 1), payload(i + 1));
+		}
+	}
+
+	/**
+	 * Puts a record into a min slot and moves it down the min side of the heap
+	 * until it is in the correct position. The records in the children of the
+	 * slot must already form valid interval heaps.
+	 *
+	 * @param index    the min slot to start at
+	 * @param priority the priority of the record
+	 * @param value    the payload of the record
+	 */
+	private void siftMinDown(int index, long priority, long value) {
+		int childIndex;
+
+		while ((childIndex = (index << 1) + 2) < numElements) {
+			// Use the child with the smallest left record
+			if (childIndex + 2 < numElements && priority(childIndex) > priority(childIndex + 2)) {
+				childIndex += 2;
+			}
+
+			if (priority <= priority(childIndex)) {
+				break;
+			}
+
+			// Move the child record up
+			move(childIndex, index);
+
+			// Ensure that the left record of the child is the smallest
+			if (childIndex + 1 < numElements && priority > priority(childIndex + 1)) {
+				long p = priority(childIndex + 1);
+				long v = payload(childIndex + 1);
+				write(childIndex + 1, priority, value);
+				priority = p;
+				value = v;
+			}
+
+			index = childIndex;
+		}
+
+		write(index, priority, value);
+	}
+
+	/**
+	 * Puts a record into a max slot and moves it down the max side of the heap
+	 * until it is in the correct position. The records in the children of the
+	 * slot must already form valid interval heaps.
+	 *
+	 * @param index    the max slot to start at
+	 * @param priority the priority of the record
+	 * @param value    the payload of the record
+	 */
+	private void siftMaxDown(int index, long priority, long value) {
+		int childIndex;
+
+		while ((childIndex = (index << 1) + 1) <= numElements) {
+			// The last node may only have a left record
+			// which then also acts as its right record
+			if (childIndex == numElements) {
+				childIndex--;
+			} else if (childIndex + 2 <= numElements) {
+				// Use the child with the largest right record
+				int rightChild = childIndex + 2 == numElements ? childIndex + 1 : childIndex + 2;
+
+				if (priority(childIndex) < priority(rightChild)) {
+					childIndex = rightChild;
+				}
+			}
+
+			if (priority >= priority(childIndex)) {
+				break;
+			}
+
+			// Move the child record up
+			move(childIndex, index);
+
+			// Ensure that the right record of the child is the largest
+			if ((childIndex & 1) == 1 && priority < priority(childIndex - 1)) {
+				long p = priority(childIndex - 1);
+				long v = payload(childIndex - 1);
+				write(childIndex - 1, priority, value);
+				priority = p;
+				value = v;
+			}
+
+			index = childIndex;
+		}
+
+		write(index, priority, value);
+	}
+
+	/**
+	 * Throws an exception if the queue has been closed
+	 */
+	void ensureOpen() {
+		if (segments == null) {
+			throw new IllegalStateException("DEPQ is closed");
+		}
+	}
+
+	/**
+	 * Gets the priority of the record in a slot
+	 *
+	 * @param index the slot of the record
+	 * @return returns the priority
+	 */
+	long priority(int index) {
+		return segments[index >>> SEGMENT_SHIFT].getLong((index & SEGMENT_MASK) * RECORD_BYTES);
+	}
+
+	/**
+	 * Gets the payload of the record in a slot
+	 *
+	 * @param index the slot of the record
+	 * @return returns the payload
+	 */
+	long payload(int index) {
+		return segments[index >>> SEGMENT_SHIFT].getLong((index & SEGMENT_MASK) * RECORD_BYTES + 8);
+	}
+
+	/**
+	 * Writes a record into a slot
+	 *
+	 * @param index    the slot of the record
+	 * @param priority the priority of the record
+	 * @param payload  the payload of the record
+	 */
+	void write(int index, long priority, long payload) {
+		ByteBuffer segment = segments[index >>> SEGMENT_SHIFT];
+		int offset = (index & SEGMENT_MASK) * RECORD_BYTES;
+
+		segment.putLong(offset, priority);
+		segment.putLong(offset + 8, payload);
+	}
+
+	/**
+	 * Copies the record in one slot to another
+	 *
+	 * @param from the slot to copy from
+	 * @param to   the slot to copy to
+	 */
+	void move(int from, int to) {
+		write(to, priority(from), payload(from));
+	}
+}
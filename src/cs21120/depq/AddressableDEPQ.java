@@ -0,0 +1,62 @@
+package cs21120.depq;
+
+/**
+ * A Double Ended Priority Queue whose elements can be removed or changed
+ * wherever they are in the queue, not just at the ends. Adding an element
+ * with insert returns a Handle which refers to that element for as long as it
+ * is in the queue.
+ *
+ * @author Darren White
+ */
+public interface AddressableDEPQ<E> extends DEPQ<E> {
+
+	/**
+	 * Adds an element to the DEPQ and returns a handle to it
+	 *
+	 * @param c the element to insert into the DEPQ
+	 * @return returns the handle of the element
+	 */
+	Handle<E> insert(E c);
+
+	/**
+	 * Removes the element a handle refers to from the DEPQ
+	 *
+	 * @param handle the handle of the element
+	 * @return returns true if the element was removed, false if
+	 * it was not in the DEPQ
+	 */
+	boolean remove(Handle<E> handle);
+
+	/**
+	 * Replaces the element a handle refers to with a new element, which
+	 * is moved to its correct position. The handle then refers to the new
+	 * element.
+	 *
+	 * @param handle the handle of the element
+	 * @param c      the new element
+	 * @throws IllegalArgumentException if the element is not in the DEPQ
+	 */
+	void changeKey(Handle<E> handle, E c);
+
+	/**
+	 * Refers to an element in an AddressableDEPQ
+	 *
+	 * @param <E> the type of the element
+	 */
+	interface Handle<E> {
+
+		/**
+		 * Gets the element this handle refers to
+		 *
+		 * @return returns the element
+		 */
+		E getElement();
+
+		/**
+		 * Checks if the element is still in the DEPQ
+		 *
+		 * @return returns true if the element has not been removed
+		 */
+		boolean isValid();
+	}
+}
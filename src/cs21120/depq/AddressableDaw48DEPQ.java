@@ -0,0 +1,302 @@
+package cs21120.depq;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Objects;
+
+/**
+ * An interval heap whose elements can be removed or changed wherever they are
+ * in the heap. The heap is a Daw48DEPQ of entries, each of which is also the
+ * handle returned by insert. Daw48DEPQ reports every slot an element is moved
+ * to, so each entry records where it is and nothing has to be searched.
+ * <p>
+ * Removing an element moves the last element into its slot, and changing an
+ * element puts the new element into its slot. The element in that slot is
+ * then moved to its correct position with Daw48DEPQ.fixAt(int). Both are
+ * O(log n), as are adding, getLeast and getMost. Inspecting is O(1).
+ * <p>
+ * Elements are ordered by their natural ordering unless a Comparator is given
+ * when the queue is created. This class is not thread-safe.
+ *
+ * @author Darren White
+ */
+public class AddressableDaw48DEPQ<E> implements AddressableDEPQ<E> {
+
+	/**
+	 * The interval heap of entries
+	 */
+	private final EntryHeap<E> heap;
+
+	/**
+	 * Creates a new empty queue which orders its elements
+	 * by their natural ordering
+	 */
+	public AddressableDaw48DEPQ() {
+		this(null);
+	}
+
+	/**
+	 * Creates a new empty queue which orders its elements with a comparator
+	 *
+	 * @param comparator the comparator used to order the elements,
+	 *                   or null for the natural ordering
+	 */
+	@SuppressWarnings("unchecked")
+	public AddressableDaw48DEPQ(Comparator<? super E> comparator) {
+		if (comparator != null) {
+			heap = new EntryHeap<>((a, b) -> comparator.compare(a.element, b.element));
+		} else {
+			heap = new EntryHeap<>((a, b) -> ((Comparable<? super E>) a.element).compareTo(b.element));
+		}
+	}
+
+	/**
+	 * Adds an element into the queue, see insert(Object)
+	 *
+	 * @param c the element to insert into the DEPQ
+	 */
+	@Override
+	public void add(E c) {
+		insert(c);
+	}
+
+	/**
+	 * Adds an element into the queue in the correct position and returns
+	 * its handle, see Daw48DEPQ.add(Object)
+	 *
+	 * @param c the element to insert into the DEPQ
+	 * @return returns the handle of the element
+	 */
+	@Override
+	public Handle<E> insert(E c) {
+		if (c == null) {
+			throw new NullPointerException("Null values not allowed in DEPQ");
+		}
+
+		Entry<E> entry = new Entry<>(this, c);
+		heap.add(entry);
+
+		return entry;
+	}
+
+	/**
+	 * Removes the element a handle refers to. The last element in the
+	 * heap is moved into its slot and then moved to its correct position.
+	 *
+	 * @param handle the handle of the element
+	 * @return returns true if the element was removed, false if
+	 * it was not in the DEPQ
+	 */
+	@Override
+	public boolean remove(Handle<E> handle) {
+		if (!contains(handle)) {
+			return false;
+		}
+
+		detach(heap.removeAt(((Entry<E>) handle).slot));
+
+		return true;
+	}
+
+	/**
+	 * Replaces the element a handle refers to with a new element,
+	 * which is then moved to its correct position
+	 *
+	 * @param handle the handle of the element
+	 * @param c      the new element
+	 * @throws IllegalArgumentException if the element is not in the DEPQ
+	 */
+	@Override
+	public void changeKey(Handle<E> handle, E c) {
+		if (c == null) {
+			throw new NullPointerException("Null values not allowed in DEPQ");
+		}
+
+		if (!contains(handle)) {
+			throw new IllegalArgumentException("Handle is not in this DEPQ");
+		}
+
+		Entry<E> entry = (Entry<E>) handle;
+		entry.element = c;
+		heap.fixAt(entry.slot);
+	}
+
+	/**
+	 * Checks if a handle refers to an element in this queue
+	 *
+	 * @param handle the handle
+	 * @return returns true if the element is in this queue
+	 */
+	private boolean contains(Handle<E> handle) {
+		return handle instanceof Entry && ((Entry<?>) handle).owner == this;
+	}
+
+	/**
+	 * Removes the smallest element from the queue
+	 *
+	 * @return returns the smallest element or null if the queue is empty
+	 */
+	@Override
+	public E getLeast() {
+		return detach(heap.getLeast());
+	}
+
+	/**
+	 * Removes the largest element from the queue
+	 *
+	 * @return returns the largest element or null if the queue is empty
+	 */
+	@Override
+	public E getMost() {
+		return detach(heap.getMost());
+	}
+
+	/**
+	 * Gets the smallest element in the queue
+	 *
+	 * @return returns the smallest element or null if the queue is empty
+	 */
+	@Override
+	public E inspectLeast() {
+		Entry<E> entry = heap.inspectLeast();
+
+		return entry != null ? entry.element : null;
+	}
+
+	/**
+	 * Gets the largest element in the queue
+	 *
+	 * @return returns the largest element or null if the queue is empty
+	 */
+	@Override
+	public E inspectMost() {
+		Entry<E> entry = heap.inspectMost();
+
+		return entry != null ? entry.element : null;
+	}
+
+	/**
+	 * Checks if the queue is empty
+	 *
+	 * @return returns true if the queue is empty
+	 */
+	@Override
+	public boolean isEmpty() {
+		return heap.isEmpty();
+	}
+
+	/**
+	 * Gets the number of elements in the queue
+	 *
+	 * @return returns the number of elements currently in the queue
+	 */
+	@Override
+	public int size() {
+		return heap.size();
+	}
+
+	/**
+	 * Checks if the entries form a valid interval heap and every entry
+	 * still records the slot it is stored in
+	 *
+	 * @return returns true if the heap and the handles are consistent
+	 */
+	boolean isHeap() {
+		Iterator<Entry<E>> entries = heap.unorderedStream().iterator();
+
+		for (int i = 0; entries.hasNext(); i++) {
+			Entry<E> entry = entries.next();
+
+			if (entry.owner != this || entry.slot != i) {
+				return false;
+			}
+		}
+
+		return heap.isHeap();
+	}
+
+	/**
+	 * Marks an entry which has been removed from the heap as no longer valid
+	 *
+	 * @param entry the removed entry, or null if the queue was empty
+	 * @return returns the element of the entry or null
+	 */
+	private E detach(Entry<E> entry) {
+		if (entry == null) {
+			return null;
+		}
+
+		entry.owner = null;
+		entry.slot = -1;
+
+		return entry.element;
+	}
+
+	/**
+	 * The interval heap of entries, which records the slot
+	 * of every entry it moves in the entry
+	 *
+	 * @param <E> the type of the elements
+	 */
+	private static final class EntryHeap<E> extends Daw48DEPQ<Entry<E>> {
+
+		/**
+		 * Creates a new empty heap of entries
+		 *
+		 * @param comparator the comparator used to order the entries
+		 */
+		private EntryHeap(Comparator<Entry<E>> comparator) {
+			super(comparator);
+		}
+
+		@Override
+		void moved(Entry<E> entry, int index) {
+			entry.slot = index;
+		}
+	}
+
+	/**
+	 * An element in the queue and the slot it is stored in,
+	 * this is the handle returned by insert
+	 *
+	 * @param <E> the type of the element
+	 */
+	private static final class Entry<E> implements Handle<E> {
+
+		/**
+		 * The queue the entry is in, null once it is removed
+		 */
+		private Object owner;
+
+		/**
+		 * The element
+		 */
+		private E element;
+
+		/**
+		 * The slot the entry is stored in, -1 once it is removed
+		 */
+		private int slot;
+
+		/**
+		 * Creates an entry for an element
+		 *
+		 * @param owner   the queue the entry is in
+		 * @param element the element
+		 */
+		private Entry(Object owner, E element) {
+			this.owner = owner;
+			this.element = Objects.requireNonNull(element);
+		}
+
+		@Override
+		public E getElement() {
+			return element;
+		}
+
+		@Override
+		public boolean isValid() {
+			return owner != null;
+		}
+	}
+}
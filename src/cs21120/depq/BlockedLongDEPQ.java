@@ -0,0 +1,540 @@
+package cs21120.depq;
+
+import java.util.NoSuchElementException;
+
+/**
+ * An interval heap of primitive long values, like LongDEPQ, which packs
+ * subtrees of the heap into blocks so that walking from the root to a leaf
+ * touches fewer cache lines and pages once the heap is larger than the CPU
+ * caches. In LongDEPQ the children of node i are at 2i + 1 and 2i + 2, so
+ * below the first few levels every step of a sift lands in a different cache
+ * line and, for large heaps, a different page.
+ * <p>
+ * Here the heap is split into blocks of 2^h node positions of 16 bytes, so a
+ * height of 2 makes a block a 64 byte cache line and a height of 8 makes it a
+ * 4KB page. The top of each block is a pair of sibling nodes (local positions
+ * 2 and 3) and below them are their subtrees, in the same order as an
+ * ordinary binary heap, down to the leaves at local positions 2^(h-1) to
+ * 2^h - 1. Local positions 0 and 1 are left empty, except that the root of
+ * the heap is at local position 1 of the first block. Keeping both children of
+ * a leaf in the same child block means a sift only moves to another block
+ * every h - 1 levels, and never has to look at two blocks to pick a child.
+ * <p>
+ * The position of a node is block &lt;&lt; h | local. Each leaf of a block has
+ * one child block, so the children of block b are blocks 2^(h-1) * b + 1 to
+ * 2^(h-1) * b + 2^(h-1), like the children of a 2^(h-1)-ary heap. Blocks are
+ * filled one at a time in that order, so the array only grows a block at a
+ * time and the tree stays balanced, although it is not a complete binary tree.
+ * A node exists if its position is not after the position of the last node.
+ * The node at position p is stored in slots 2p + 2 and 2p + 3, which puts
+ * every pair of siblings in one cache line when the array itself is aligned,
+ * as the large arrays G1 allocates in their own regions are.
+ * <p>
+ * The interval heap algorithms are the same as in LongDEPQ, only the way the
+ * parent and children of a node are found is different. Adding and removing
+ * are O(log n), inspecting is O(1). Finding the children takes more work than
+ * in LongDEPQ, so this is slower while the heap fits in the caches and is only
+ * worth using for very large heaps, see LayoutBenchmark.
+ *
+ * @author Darren White
+ */
+public class BlockedLongDEPQ implements DEPQ<Long> {
+
+	/**
+	 * The default height of a block, 256 positions (4KB) per block
+	 */
+	public static final int DEFAULT_BLOCK_HEIGHT = 8;
+
+	/**
+	 * The slot of the root min value, the first slots of the array are not
+	 * used so that with the 16 byte array header every pair of sibling
+	 * nodes starts a multiple of 32 bytes from the start of the array object
+	 */
+	private static final int ROOT = 4;
+
+	/**
+	 * The number of levels of the heap in each block
+	 */
+	private final int height;
+
+	/**
+	 * Gets the local position of a node within its block
+	 */
+	private final int mask;
+
+	/**
+	 * The local position of the first leaf of a block
+	 */
+	private final int half;
+
+	/**
+	 * Used to store all of the values in the queue, the node at position p
+	 * is stored in slot 2p + 2 (left/min) and slot 2p + 3 (right/max)
+	 */
+	private long[] elements;
+
+	/**
+	 * Number of values in the queue
+	 */
+	private int numElements = 0;
+
+	/**
+	 * The position of the last node, 0 if the queue is empty
+	 */
+	private int lastNode = 0;
+
+	/**
+	 * Creates a new empty BlockedLongDEPQ with the default block height
+	 */
+	public BlockedLongDEPQ() {
+		this(DEFAULT_BLOCK_HEIGHT);
+	}
+
+	/**
+	 * Creates a new empty BlockedLongDEPQ
+	 *
+	 * @param blockHeight the number of levels of the heap in each block,
+	 *                    from 2 to 16
+	 */
+	public BlockedLongDEPQ(int blockHeight) {
+		this(2, blockHeight);
+	}
+
+	/**
+	 * Creates a new empty BlockedLongDEPQ with room for a number
+	 * of values before the array has to grow
+	 *
+	 * @param initialCapacity the number of values to make room for
+	 * @param blockHeight     the number of levels of the heap in each block,
+	 *                        from 2 to 16
+	 */
+	public BlockedLongDEPQ(int initialCapacity, int blockHeight) {
+		if (blockHeight < 2 || blockHeight > 16) {
+			throw new IllegalArgumentException("Block height must be from 2 to 16: " + blockHeight);
+		}
+
+		if (initialCapacity < 0) {
+			throw new IllegalArgumentException("Initial capacity must not be negative: " + initialCapacity);
+		}
+
+		height = blockHeight;
+		mask = (1 << blockHeight) - 1;
+		half = 1 << (blockHeight - 1);
+
+		// Every block after the first holds 2^h - 2 nodes
+		long nodes = ((long) initialCapacity + 1) >> 1;
+		long blocks = 1 + (Math.max(nodes - mask, 0) + mask - 2) / (mask - 1);
+		long length = (blocks << (blockHeight + 1)) + 2;
+
+		if (length > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Initial capacity is too large: " + initialCapacity);
+		}
+
+		elements = new long[(int) length];
+	}
+
+	/**
+	 * Adds a value into the queue in the correct position. The value is
+	 * placed in the last node and then bubbled up the min or max side
+	 * of the heap, see LongDEPQ.addLong(long).
+	 *
+	 * @param c the value to insert into the queue
+	 */
+	public void addLong(long c) {
+		int slot;
+
+		if ((numElements & 1) == 0) {
+			// Start a new node
+			int node = next(lastNode);
+
+			if (slot(node) + 1 >= elements.length) {
+				grow(node);
+			}
+
+			lastNode = node;
+			slot = slot(node);
+		} else {
+			// Fill the right slot of the last node, making
+			// sure the left value is the smallest
+			slot = slot(lastNode) + 1;
+
+			if (elements[slot - 1] > c) {
+				elements[slot] = elements[slot - 1];
+				slot--;
+			}
+		}
+
+		numElements++;
+
+		long[] e = elements;
+		int node = lastNode;
+		int parentSlot;
+
+		if (node != 1) {
+			parentSlot = slot(parent(node));
+
+			if (e[parentSlot] > c) {
+				// Shift the parent min values down until we find the slot for c
+				do {
+					e[slot] = e[parentSlot];
+					slot = parentSlot;
+					node = (slot >> 1) - 1;
+				} while (node != 1 && e[parentSlot = slot(parent(node))] > c);
+			} else if (e[parentSlot + 1] < c) {
+				parentSlot++;
+
+				// Shift the parent max values down until we find the slot for c
+				do {
+					e[slot] = e[parentSlot];
+					slot = parentSlot;
+					node = (slot >> 1) - 1;
+				} while (node != 1 && e[parentSlot = slot(parent(node)) + 1] < c);
+			}
+		}
+
+		e[slot] = c;
+	}
+
+	/**
+	 * Gets the smallest value in the queue and removes it from the queue.
+	 * The last value is moved into the root min slot and moved down the heap,
+	 * see LongDEPQ.getLeastLong().
+	 *
+	 * @return returns the smallest value in the queue
+	 * @throws NoSuchElementException if the queue is empty
+	 */
+	public long getLeastLong() {
+		if (numElements == 0) {
+			throw new NoSuchElementException("DEPQ is empty");
+		}
+
+		long[] e = elements;
+		long min = e[ROOT];
+		long c = removeLast();
+		int last = lastNode;
+		// If the last node has a right value
+		boolean lastFull = (numElements & 1) == 0;
+		// The position of the node, start at the root
+		int node = 1;
+		int child;
+
+		// Keep looping while we have a child, moving c down
+		// the heap until it's in the correct position
+		while ((child = leftChild(node)) <= last) {
+			// Use the child with the smallest left value
+			int childSlot = slot(child);
+
+			// The right child is next to the left child
+			if (child < last && e[childSlot] > e[childSlot + 2]) {
+				child++;
+				childSlot += 2;
+			}
+
+			if (c <= e[childSlot]) {
+				break;
+			}
+
+			// Move the child value up
+			e[slot(node)] = e[childSlot];
+
+			// Ensure that the left value of the child is the smallest
+			if ((child < last || lastFull) && c > e[childSlot + 1]) {
+				long tmp = e[childSlot + 1];
+				e[childSlot + 1] = c;
+				c = tmp;
+			}
+
+			node = child;
+		}
+
+		// Nothing is left to place if the queue is now empty
+		if (numElements > 0) {
+			e[slot(node)] = c;
+		}
+
+		return min;
+	}
+
+	/**
+	 * Gets the largest value in the queue and removes it from the queue.
+	 * The last value is moved into the root max slot and moved down the heap,
+	 * see LongDEPQ.getMostLong().
+	 *
+	 * @return returns the largest value in the queue
+	 * @throws NoSuchElementException if the queue is empty
+	 */
+	public long getMostLong() {
+		if (numElements <= 1) {
+			// The only value is the max as well
+			return getLeastLong();
+		}
+
+		long[] e = elements;
+		long max = e[ROOT + 1];
+		long c = removeLast();
+
+		// The max was the last value so only the root min is left
+		if (numElements == 1) {
+			return max;
+		}
+
+		int last = lastNode;
+		// If the last node has a right value
+		boolean lastFull = (numElements & 1) == 0;
+		// The slot of the value, start at the root max
+		int slot = ROOT + 1;
+		int node = 1;
+		int child;
+
+		while ((child = leftChild(node)) <= last) {
+			// Use the child with the largest right value, the last
+			// node may only have a left value which acts as its right
+			int childSlot = child < last || lastFull ? slot(child) + 1 : slot(child);
+
+			// The right child is next to the left child
+			if (child < last) {
+				int rightSlot = child + 1 < last || lastFull ? slot(child) + 3 : slot(child) + 2;
+
+				if (e[childSlot] < e[rightSlot]) {
+					child++;
+					childSlot = rightSlot;
+				}
+			}
+
+			if (c >= e[childSlot]) {
+				break;
+			}
+
+			// Move the child value up
+			e[slot] = e[childSlot];
+			slot = childSlot;
+
+			// Ensure that the right value of the child is the largest
+			if ((childSlot & 1) == 1 && c < e[childSlot - 1]) {
+				long tmp = e[childSlot - 1];
+				e[childSlot - 1] = c;
+				c = tmp;
+			}
+
+			node = child;
+		}
+
+		e[slot] = c;
+
+		return max;
+	}
+
+	/**
+	 * Removes the last value, which is the right value of the last node
+	 * or the only value in it
+	 *
+	 * @return returns the last value
+	 */
+	private long removeLast() {
+		if ((numElements & 1) == 0) {
+			numElements--;
+
+			return elements[slot(lastNode) + 1];
+		}
+
+		long c = elements[slot(lastNode)];
+
+		// The last node is now empty
+		lastNode = --numElements == 0 ? 0 : previous(lastNode);
+
+		return c;
+	}
+
+	/**
+	 * Gets the smallest value in the queue but does not remove it
+	 *
+	 * @return returns the smallest value in the queue
+	 * @throws NoSuchElementException if the queue is empty
+	 */
+	public long inspectLeastLong() {
+		if (numElements == 0) {
+			throw new NoSuchElementException("DEPQ is empty");
+		}
+
+		return elements[ROOT];
+	}
+
+	/**
+	 * Gets the largest value in the queue but does not remove it
+	 *
+	 * @return returns the largest value in the queue
+	 * @throws NoSuchElementException if the queue is empty
+	 */
+	public long inspectMostLong() {
+		if (numElements == 0) {
+			throw new NoSuchElementException("DEPQ is empty");
+		}
+
+		return elements[numElements == 1 ? ROOT : ROOT + 1];
+	}
+
+	/**
+	 * Adds a boxed value into the queue, see addLong(long)
+	 *
+	 * @param c the value to insert into the queue
+	 */
+	@Override
+	public void add(Long c) {
+		// Unboxing throws the npe for null values
+		addLong(c);
+	}
+
+	/**
+	 * Removes the smallest value and returns it boxed
+	 *
+	 * @return returns the smallest value or null if the queue is empty
+	 */
+	@Override
+	public Long getLeast() {
+		return numElements > 0 ? getLeastLong() : null;
+	}
+
+	/**
+	 * Removes the largest value and returns it boxed
+	 *
+	 * @return returns the largest value or null if the queue is empty
+	 */
+	@Override
+	public Long getMost() {
+		return numElements > 0 ? getMostLong() : null;
+	}
+
+	/**
+	 * Gets the smallest value boxed
+	 *
+	 * @return returns the smallest value or null if the queue is empty
+	 */
+	@Override
+	public Long inspectLeast() {
+		return numElements > 0 ? inspectLeastLong() : null;
+	}
+
+	/**
+	 * Gets the largest value boxed
+	 *
+	 * @return returns the largest value or null if the queue is empty
+	 */
+	@Override
+	public Long inspectMost() {
+		return numElements > 0 ? inspectMostLong() : null;
+	}
+
+	/**
+	 * Checks if the queue is empty
+	 *
+	 * @return returns true if the queue is empty
+	 */
+	@Override
+	public boolean isEmpty() {
+		return numElements == 0;
+	}
+
+	/**
+	 * Gets the number of values in the queue
+	 *
+	 * @return returns the number of values currently in the queue
+	 */
+	@Override
+	public int size() {
+		return numElements;
+	}
+
+	/**
+	 * Gets the slot of the left value of a node
+	 *
+	 * @param node the position of the node
+	 * @return returns the slot of the left value
+	 */
+	private static int slot(int node) {
+		return (node + 1) << 1;
+	}
+
+	/**
+	 * Gets the position of the left child of a node. Within a block the
+	 * children of local position l are at 2l and 2l + 1. The children of
+	 * the k-th leaf of a block are the pair at the top of its k-th child block.
+	 *
+	 * @param node the position of the node
+	 * @return returns the position of the left child, which may not exist,
+	 * or Integer.MAX_VALUE if it would not fit in an int
+	 */
+	private int leftChild(int node) {
+		int local = node & mask;
+
+		if (local < half) {
+			// (block << h | 2l) is node + l
+			return node + local;
+		}
+
+		long block = ((long) (node >>> height) << (height - 1)) + 1 + (local - half);
+		long child = block << height | 2;
+
+		return child > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) child;
+	}
+
+	/**
+	 * Gets the position of the parent of a node which is not the root
+	 *
+	 * @param node the position of the node
+	 * @return returns the position of the parent
+	 */
+	private int parent(int node) {
+		int local = node & mask;
+
+		if (local > 3 || node <= mask) {
+			// (block << h | l / 2), the first block has a single root
+			return node - ((local + 1) >> 1);
+		}
+
+		// The top pair of a block, its parent is a leaf of the parent block
+		int block = (node >>> height) - 1;
+
+		return (block >>> (height - 1) << height) | (half + (block & (half - 1)));
+	}
+
+	/**
+	 * Gets the position of the node which is filled after a node
+	 *
+	 * @param node the position of the node, or 0 for before the root
+	 * @return returns the position of the next node
+	 */
+	private int next(int node) {
+		return (node & mask) == mask ? ((node >>> height) + 1) << height | 2 : node + 1;
+	}
+
+	/**
+	 * Gets the position of the node which is filled before a node
+	 *
+	 * @param node the position of the node, not the root
+	 * @return returns the position of the previous node
+	 */
+	private int previous(int node) {
+		return (node & mask) == 2 && node > mask ? ((node >>> height) - 1) << height | mask : node - 1;
+	}
+
+	/**
+	 * Expands the array by at least 1.5 times so that it holds a node,
+	 * keeping the length a whole number of blocks
+	 *
+	 * @param node the position of the node which must fit
+	 */
+	private void grow(int node) {
+		long blockLength = 2L << height;
+		long length = Math.max((long) slot(node) + 2, elements.length + (elements.length >> 1));
+		// Round up to a whole block, after the two slots before the first block
+		length = (length - 2 + blockLength - 1) / blockLength * blockLength + 2;
+
+		if (length > Integer.MAX_VALUE - 8) {
+			throw new IllegalStateException("DEPQ is too large");
+		}
+
+		long[] newElements = new long[(int) length];
+		System.arraycopy(elements, 0, newElements, 0, elements.length);
+		elements = newElements;
+	}
+}
@@ -0,0 +1,92 @@
+package cs21120.depq;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A Double Ended Priority Queue which can be shared between threads and
+ * which waits for an element to become available when removing, and for
+ * space to become available when adding to a queue with a fixed capacity.
+ * <p>
+ * The DEPQ methods never wait: getLeast and getMost return null if the queue
+ * is empty and add throws an IllegalStateException if the queue is full.
+ *
+ * @author Darren White
+ */
+public interface BlockingDEPQ<E> extends DEPQ<E> {
+
+	/**
+	 * Adds an element to the DEPQ, waiting for space to become available
+	 * if the DEPQ is full
+	 *
+	 * @param c the element to insert into the DEPQ
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	void put(E c) throws InterruptedException;
+
+	/**
+	 * Adds an element to the DEPQ if there is space for it
+	 *
+	 * @param c the element to insert into the DEPQ
+	 * @return returns true if the element was added or false if the DEPQ is full
+	 */
+	boolean offer(E c);
+
+	/**
+	 * Adds an element to the DEPQ, waiting up to a timeout for space
+	 * to become available if the DEPQ is full
+	 *
+	 * @param c       the element to insert into the DEPQ
+	 * @param timeout how long to wait before giving up
+	 * @param unit    the unit of the timeout
+	 * @return returns true if the element was added or false if the timeout passed
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	boolean offer(E c, long timeout, TimeUnit unit) throws InterruptedException;
+
+	/**
+	 * Removes the smallest element from the DEPQ and returns it, waiting
+	 * for an element to become available if the DEPQ is empty
+	 *
+	 * @return returns the smallest element in the DEPQ
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	E takeLeast() throws InterruptedException;
+
+	/**
+	 * Removes the largest element from the DEPQ and returns it, waiting
+	 * for an element to become available if the DEPQ is empty
+	 *
+	 * @return returns the largest element in the DEPQ
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	E takeMost() throws InterruptedException;
+
+	/**
+	 * Removes the smallest element from the DEPQ and returns it, waiting up
+	 * to a timeout for an element to become available if the DEPQ is empty
+	 *
+	 * @param timeout how long to wait before giving up
+	 * @param unit    the unit of the timeout
+	 * @return returns the smallest element in the DEPQ or null if the timeout passed
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	E pollLeast(long timeout, TimeUnit unit) throws InterruptedException;
+
+	/**
+	 * Removes the largest element from the DEPQ and returns it, waiting up
+	 * to a timeout for an element to become available if the DEPQ is empty
+	 *
+	 * @param timeout how long to wait before giving up
+	 * @param unit    the unit of the timeout
+	 * @return returns the largest element in the DEPQ or null if the timeout passed
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	E pollMost(long timeout, TimeUnit unit) throws InterruptedException;
+
+	/**
+	 * Returns how many more elements can be added before the DEPQ is full
+	 *
+	 * @return returns the number of elements which can be added without waiting
+	 */
+	int remainingCapacity();
+}
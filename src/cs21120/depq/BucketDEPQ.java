@@ -0,0 +1,358 @@
+package cs21120.depq;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.ToIntFunction;
+
+/**
+ * A Double-ended Priority Queue for elements whose priorities are integers in
+ * a known, fairly small range, such as 0 to 65535. Instead of a heap there is
+ * a bucket for each priority and a bitmap of which buckets are not empty, so
+ * finding the least or most element is a scan for the first or last set bit
+ * rather than O(log n) comparisons. Elements with the same priority come out
+ * in the order they were added, from either end.
+ * <p>
+ * The bitmap has two levels: a bit for each priority, 64 to a word, and a
+ * summary bit for each word which is set when the word is not zero. Finding
+ * the least priority finds the first non-zero summary word and then uses
+ * Long.numberOfTrailingZeros twice, and the most priority does the same from
+ * the other end with Long.numberOfLeadingZeros. A single summary word covers
+ * 4096 priorities and the summary words are scanned in order, so with r
+ * priorities at most r / 4096 words are looked at; 16 for 65536 priorities.
+ * <p>
+ * The buckets are singly linked lists threaded through one array of elements,
+ * with the first and last entry of each bucket kept in two int arrays and
+ * removed entries reused through a free list, so nothing is allocated for each
+ * element. add, getLeast, getMost, inspectLeast and inspectMost are O(1) for a
+ * fixed range of priorities (plus the occasional doubling of the element
+ * array), and isEmpty and size are O(1). The priority of an element is
+ * extracted once when it is added.
+ *
+ * @author Darren White
+ */
+public class BucketDEPQ<E> implements DEPQ<E> {
+
+	/**
+	 * Marks the end of a bucket, or an empty bucket
+	 */
+	private static final int NONE = -1;
+
+	/**
+	 * The smallest priority allowed
+	 */
+	private final int minPriority;
+
+	/**
+	 * Gets the priority of each element
+	 */
+	private final ToIntFunction<? super E> priority;
+
+	/**
+	 * The first entry of each bucket, NONE if the bucket is empty
+	 */
+	private final int[] heads;
+
+	/**
+	 * The last entry of each bucket, only valid if the bucket is not empty
+	 */
+	private final int[] tails;
+
+	/**
+	 * A bit for each bucket which is set if the bucket is not empty
+	 */
+	private final long[] bits;
+
+	/**
+	 * A bit for each word of bits which is set if the word is not zero
+	 */
+	private final long[] summary;
+
+	/**
+	 * The element of each entry, null for free entries
+	 */
+	private Object[] elements = new Object[16];
+
+	/**
+	 * The next entry in the same bucket or the free list
+	 */
+	private int[] next = new int[16];
+
+	/**
+	 * The first free entry, NONE if there are none
+	 */
+	private int free = NONE;
+
+	/**
+	 * The number of entries which have ever been used,
+	 * entries after this are free but not on the free list
+	 */
+	private int used = 0;
+
+	/**
+	 * Number of elements in the queue
+	 */
+	private int numElements = 0;
+
+	/**
+	 * Creates a new empty BucketDEPQ for priorities from 0 to maxPriority
+	 *
+	 * @param maxPriority the largest priority allowed
+	 * @param priority    gets the priority of each element
+	 */
+	public BucketDEPQ(int maxPriority, ToIntFunction<? super E> priority) {
+		this(0, maxPriority, priority);
+	}
+
+	/**
+	 * Creates a new empty BucketDEPQ for priorities from minPriority to
+	 * maxPriority. The memory used grows with the size of the range.
+	 *
+	 * @param minPriority the smallest priority allowed
+	 * @param maxPriority the largest priority allowed
+	 * @param priority    gets the priority of each element
+	 */
+	public BucketDEPQ(int minPriority, int maxPriority, ToIntFunction<? super E> priority) {
+		long range = (long) maxPriority - minPriority + 1;
+
+		if (range <= 0 || range > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Invalid priority range: " + minPriority + " to " + maxPriority);
+		}
+
+		this.minPriority = minPriority;
+		this.priority = Objects.requireNonNull(priority, "Priority function must not be null");
+
+		heads = new int[(int) range];
+		tails = new int[(int) range];
+		bits = new long[(int) ((range + 63) >>> 6)];
+		summary = new long[(bits.length + 63) >>> 6];
+
+		Arrays.fill(heads, NONE);
+	}
+
+	/**
+	 * Adds an element to the end of the bucket for its priority. No null
+	 * elements can be added and will throw a NullPointerException.
+	 *
+	 * @param c the element to insert into the DEPQ
+	 * @throws IllegalArgumentException if the priority is out of range
+	 */
+	@Override
+	public void add(E c) {
+		// Don't add a null value
+		// throw an npe instead
+		if (c == null) {
+			throw new NullPointerException("Null values not allowed in DEPQ");
+		}
+
+		int p = priority.applyAsInt(c);
+		int bucket = p - minPriority;
+
+		// Also catches overflow of the subtraction
+		if (bucket < 0 || bucket >= heads.length || p < minPriority) {
+			throw new IllegalArgumentException("Priority out of range: " + p);
+		}
+
+		int entry = allocate();
+		elements[entry] = c;
+		next[entry] = NONE;
+
+		if (heads[bucket] == NONE) {
+			heads[bucket] = entry;
+			mark(bucket);
+		} else {
+			next[tails[bucket]] = entry;
+		}
+
+		tails[bucket] = entry;
+		numElements++;
+	}
+
+	/**
+	 * Removes the first element of the lowest non-empty bucket
+	 *
+	 * @return returns the least element or null if the queue is empty
+	 */
+	@Override
+	public E getLeast() {
+		return numElements > 0 ? remove(first()) : null;
+	}
+
+	/**
+	 * Removes the first element of the highest non-empty bucket
+	 *
+	 * @return returns the most element or null if the queue is empty
+	 */
+	@Override
+	public E getMost() {
+		return numElements > 0 ? remove(last()) : null;
+	}
+
+	/**
+	 * Gets the first element of the lowest non-empty bucket
+	 *
+	 * @return returns the least element or null if the queue is empty
+	 */
+	@Override
+	public E inspectLeast() {
+		return numElements > 0 ? elementAt(heads[first()]) : null;
+	}
+
+	/**
+	 * Gets the first element of the highest non-empty bucket
+	 *
+	 * @return returns the most element or null if the queue is empty
+	 */
+	@Override
+	public E inspectMost() {
+		return numElements > 0 ? elementAt(heads[last()]) : null;
+	}
+
+	/**
+	 * Checks if the queue is empty
+	 *
+	 * @return returns true if the queue is empty
+	 */
+	@Override
+	public boolean isEmpty() {
+		return numElements == 0;
+	}
+
+	/**
+	 * Gets the number of elements in the queue
+	 *
+	 * @return returns the number of elements currently in the queue
+	 */
+	@Override
+	public int size() {
+		return numElements;
+	}
+
+	/**
+	 * Removes the first element of a non-empty bucket
+	 *
+	 * @param bucket the bucket
+	 * @return returns the removed element
+	 */
+	private E remove(int bucket) {
+		int entry = heads[bucket];
+		E c = elementAt(entry);
+
+		heads[bucket] = next[entry];
+
+		// The bucket is now empty
+		if (heads[bucket] == NONE) {
+			unmark(bucket);
+		}
+
+		// Put the entry on the free list
+		elements[entry] = null;
+		next[entry] = free;
+		free = entry;
+		numElements--;
+
+		return c;
+	}
+
+	/**
+	 * Gets a free entry, doubling the arrays if they are full
+	 *
+	 * @return returns the free entry
+	 */
+	private int allocate() {
+		if (free != NONE) {
+			int entry = free;
+			free = next[entry];
+
+			return entry;
+		}
+
+		if (used == elements.length) {
+			if (used >= Integer.MAX_VALUE - 8) {
+				throw new IllegalStateException("DEPQ is full");
+			}
+
+			int length = (int) Math.min((long) used << 1, Integer.MAX_VALUE - 8);
+			elements = Arrays.copyOf(elements, length);
+			next = Arrays.copyOf(next, length);
+		}
+
+		return used++;
+	}
+
+	/**
+	 * Marks a bucket as not empty
+	 *
+	 * @param bucket the bucket
+	 */
+	private void mark(int bucket) {
+		int word = bucket >>> 6;
+
+		// The word was zero so it needs a summary bit
+		if (bits[word] == 0) {
+			summary[word >>> 6] |= 1L << word;
+		}
+
+		bits[word] |= 1L << bucket;
+	}
+
+	/**
+	 * Marks a bucket as empty
+	 *
+	 * @param bucket the bucket
+	 */
+	private void unmark(int bucket) {
+		int word = bucket >>> 6;
+
+		bits[word] &= ~(1L << bucket);
+
+		// The word is now zero so clear its summary bit
+		if (bits[word] == 0) {
+			summary[word >>> 6] &= ~(1L << word);
+		}
+	}
+
+	/**
+	 * Finds the lowest non-empty bucket of a non-empty queue
+	 *
+	 * @return returns the bucket
+	 */
+	private int first() {
+		int s = 0;
+
+		while (summary[s] == 0) {
+			s++;
+		}
+
+		int word = s << 6 | Long.numberOfTrailingZeros(summary[s]);
+
+		return word << 6 | Long.numberOfTrailingZeros(bits[word]);
+	}
+
+	/**
+	 * Finds the highest non-empty bucket of a non-empty queue
+	 *
+	 * @return returns the bucket
+	 */
+	private int last() {
+		int s = summary.length - 1;
+
+		while (summary[s] == 0) {
+			s--;
+		}
+
+		int word = s << 6 | (63 - Long.numberOfLeadingZeros(summary[s]));
+
+		return word << 6 | (63 - Long.numberOfLeadingZeros(bits[word]));
+	}
+
+	/**
+	 * Gets the element of an entry
+	 *
+	 * @param entry the entry
+	 * @return returns the element
+	 */
+	@SuppressWarnings("unchecked")
+	private E elementAt(int entry) {
+		return (E) elements[entry];
+	}
+}
@@ -0,0 +1,233 @@
+package cs21120.depq;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe Double-ended Priority Queue which can be used by many threads
+ * at once without any locking. Elements are kept in a lock-free skip list
+ * (ConcurrentSkipListMap) which is sorted, so both the smallest and the largest
+ * element can be reached quickly from either end of the list.
+ * <p>
+ * A skip list cannot hold two equal keys, so every element is wrapped in an
+ * entry with a unique sequence number which breaks ties between equal
+ * elements. Sequence numbers are handed out to each thread in blocks so
+ * adding does not contend on a single shared counter.
+ * <p>
+ * add, getLeast, getMost, inspectLeast, inspectMost and isEmpty are
+ * linearizable: each of them takes effect atomically at a single point
+ * between being called and returning. add, getLeast and getMost are expected
+ * O(log n), as removing the first or last entry still unlinks it from every
+ * level of the skip list. inspectLeast and isEmpty are O(1) and inspectMost is
+ * expected O(log n), as the last entry is found by searching down the levels.
+ * size is not linearizable as it is kept in a separate counter which may be
+ * briefly out of date while other threads are adding or removing elements.
+ *
+ * @author Darren White
+ */
+public class ConcurrentSkipListDEPQ<E> implements DEPQ<E> {
+
+	/**
+	 * How many sequence numbers each thread reserves at once
+	 */
+	private static final int SEQUENCE_BLOCK = 1024;
+
+	/**
+	 * The entries of the queue in ascending order,
+	 * the values are not used
+	 */
+	private final ConcurrentSkipListMap<Entry<E>, Boolean> entries;
+
+	/**
+	 * The next block of sequence numbers to hand out
+	 */
+	private final AtomicLong nextBlock = new AtomicLong();
+
+	/**
+	 * The sequence numbers reserved by each thread, the first element
+	 * is the next sequence number and the second is the end of the block
+	 */
+	private final ThreadLocal<long[]> sequences = ThreadLocal.withInitial(() -> new long[2]);
+
+	/**
+	 * The number of elements in the queue
+	 */
+	private final LongAdder numElements = new LongAdder();
+
+	/**
+	 * Creates a new concurrent DEPQ which orders elements
+	 * by their natural ordering
+	 */
+	public ConcurrentSkipListDEPQ() {
+		this(null);
+	}
+
+	/**
+	 * Creates a new concurrent DEPQ which orders elements using
+	 * a comparator. The comparator must be safe to use from many
+	 * threads at once.
+	 *
+	 * @param comparator the comparator used to order the elements,
+	 *                   or null to use the natural ordering
+	 */
+	@SuppressWarnings("unchecked")
+	public ConcurrentSkipListDEPQ(Comparator<? super E> comparator) {
+		Comparator<? super E> order = comparator != null ? comparator
+				: (a, b) -> ((Comparable<? super E>) a).compareTo(b);
+
+		// Equal elements are told apart by their sequence numbers
+		entries = new ConcurrentSkipListMap<>((a, b) -> {
+			int c = order.compare(a.element, b.element);
+
+			return c != 0 ? c : Long.compare(a.sequence, b.sequence);
+		});
+	}
+
+	/**
+	 * Adds an element to the skip list. No null elements can be added
+	 * and will throw a NullPointerException.
+	 *
+	 * @param c the element to insert into the DEPQ
+	 */
+	@Override
+	public void add(E c) {
+		// Don't add a null value
+		// throw an npe instead
+		if (c == null) {
+			throw new NullPointerException("Null values not allowed in DEPQ");
+		}
+
+		entries.put(new Entry<>(c, nextSequence()), Boolean.TRUE);
+		numElements.increment();
+	}
+
+	/**
+	 * Gets a sequence number which no other entry has, reserving
+	 * a new block of numbers for this thread when needed
+	 *
+	 * @return returns a unique sequence number
+	 */
+	private long nextSequence() {
+		long[] block = sequences.get();
+
+		// Reserve another block if this one is used up
+		if (block[0] == block[1]) {
+			block[0] = nextBlock.getAndAdd(SEQUENCE_BLOCK);
+			block[1] = block[0] + SEQUENCE_BLOCK;
+		}
+
+		return block[0]++;
+	}
+
+	/**
+	 * Removes the first entry from the skip list and returns its element
+	 *
+	 * @return returns the smallest element in the DEPQ or null if it is empty
+	 */
+	@Override
+	public E getLeast() {
+		return removed(entries.pollFirstEntry());
+	}
+
+	/**
+	 * Removes the last entry from the skip list and returns its element
+	 *
+	 * @return returns the largest element in the DEPQ or null if it is empty
+	 */
+	@Override
+	public E getMost() {
+		return removed(entries.pollLastEntry());
+	}
+
+	/**
+	 * Gets the element of an entry which has just been removed
+	 *
+	 * @param entry the removed entry, null if nothing was removed
+	 * @return returns the element or null if nothing was removed
+	 */
+	private E removed(Map.Entry<Entry<E>, Boolean> entry) {
+		if (entry == null) {
+			return null;
+		}
+
+		numElements.decrement();
+
+		return entry.getKey().element;
+	}
+
+	/**
+	 * Gets the element of the first entry in the skip list
+	 *
+	 * @return returns the smallest element in the DEPQ or null if it is empty
+	 */
+	@Override
+	public E inspectLeast() {
+		Map.Entry<Entry<E>, Boolean> entry = entries.firstEntry();
+
+		return entry != null ? entry.getKey().element : null;
+	}
+
+	/**
+	 * Gets the element of the last entry in the skip list
+	 *
+	 * @return returns the largest element in the DEPQ or null if it is empty
+	 */
+	@Override
+	public E inspectMost() {
+		Map.Entry<Entry<E>, Boolean> entry = entries.lastEntry();
+
+		return entry != null ? entry.getKey().element : null;
+	}
+
+	/**
+	 * Checks if the skip list has no entries
+	 *
+	 * @return returns true if the queue is empty
+	 */
+	@Override
+	public boolean isEmpty() {
+		return entries.isEmpty();
+	}
+
+	/**
+	 * Gets the number of elements in the DEPQ. This may be briefly out of
+	 * date while other threads are adding or removing elements.
+	 *
+	 * @return returns the number of elements currently in the DEPQ
+	 */
+	@Override
+	public int size() {
+		return (int) Math.max(0, numElements.sum());
+	}
+
+	/**
+	 * An element in the skip list along with the sequence
+	 * number which makes it unique
+	 */
+	private static final class Entry<E> {
+
+		/**
+		 * The element which was added
+		 */
+		final E element;
+
+		/**
+		 * Breaks ties between equal elements
+		 */
+		final long sequence;
+
+		/**
+		 * Create a new entry for an element
+		 *
+		 * @param element  the element which was added
+		 * @param sequence the unique sequence number
+		 */
+		Entry(E element, long sequence) {
+			this.element = element;
+			this.sequence = sequence;
+		}
+	}
+}
@@ -2,10 +2,18 @@ package cs21120.depq;
 
 /**
  * A simple Double Ended Priority Queue Interface
+ * <p>
+ * Implementations decide how elements are ordered, usually by their natural
+ * ordering (Comparable) or by a Comparator given when the queue is created.
+ * The element type used to be bounded by Comparable; the bound was dropped
+ * so that queues ordered by a Comparator, a key or a priority function can
+ * hold elements which are not Comparable. Code which declared its own
+ * DEPQ&lt;E extends Comparable&lt;E&gt;&gt; still compiles, but code which
+ * relied on the interface to guarantee compareTo must now check for itself.
  *
  * @author bpt
  */
-public interface DEPQ<E extends Comparable<E>> {
+public interface DEPQ<E> {
 
 	/**
 	 * Adds an element to the DEPQ
@@ -0,0 +1,138 @@
+package cs21120.depq;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Switches the metrics of Daw48DEPQ on and off and passes them on to the
+ * listeners. Metrics are enabled by starting the JVM with
+ * -Dcs21120.depq.metrics=true. The switch is a static final field so when it
+ * is off the JIT removes every check of it, and the hot loops are compiled
+ * exactly as if the metrics did not exist.
+ * <p>
+ * When metrics are enabled, every add, getLeast, getMost, offerBounded,
+ * replace and bulk rebuild records the number of comparisons, swaps and levels
+ * the element moved and how long it took, under the operation the caller
+ * invoked, and every array resize records the bytes copied. These are passed
+ * to:
+ * <ul>
+ * <li>the listeners added with addListener</li>
+ * <li>a DEPQMetricsMXBean which keeps totals and histograms, registered with
+ * the platform MBean server as cs21120.depq:type=DEPQMetrics</li>
+ * <li>JFR events named cs21120.depq.Operation and cs21120.depq.Resize, if
+ * the JVM has JFR</li>
+ * </ul>
+ *
+ * @author Darren White
+ */
+public final class DEPQMetrics {
+
+	/**
+	 * The system property which enables metrics
+	 */
+	public static final String PROPERTY = "cs21120.depq.metrics";
+
+	/**
+	 * If metrics are recorded, this never changes
+	 */
+	public static final boolean ENABLED = Boolean.getBoolean(PROPERTY);
+
+	/**
+	 * The operations which are recorded
+	 */
+	public enum Operation {
+		ADD, GET_LEAST, GET_MOST, OFFER, REPLACE, HEAPIFY
+	}
+
+	/**
+	 * The listeners which receive the metrics
+	 */
+	private static final List<DEPQMetricsListener> LISTENERS = new CopyOnWriteArrayList<>();
+
+	/**
+	 * The totals and histograms, null if metrics are disabled
+	 */
+	private static final MetricsRecorder RECORDER;
+
+	static {
+		if (ENABLED) {
+			RECORDER = new MetricsRecorder();
+			RECORDER.register();
+			LISTENERS.add(RECORDER);
+
+			try {
+				// Only load the JFR events if the JVM has JFR
+				Class.forName("jdk.jfr.Event");
+				LISTENERS.add((DEPQMetricsListener) Class.forName("cs21120.depq.JfrMetricsListener")
+						.getDeclaredConstructor().newInstance());
+			} catch (ReflectiveOperationException | LinkageError e) {
+				// No JFR
+			}
+		} else {
+			RECORDER = null;
+		}
+	}
+
+	private DEPQMetrics() {
+	}
+
+	/**
+	 * Adds a listener which receives the metrics of every queue.
+	 * Nothing is received if metrics are disabled.
+	 *
+	 * @param listener the listener to add
+	 */
+	public static void addListener(DEPQMetricsListener listener) {
+		if (listener == null) {
+			throw new NullPointerException("Null listener");
+		}
+
+		LISTENERS.add(listener);
+	}
+
+	/**
+	 * Removes a listener
+	 *
+	 * @param listener the listener to remove
+	 */
+	public static void removeListener(DEPQMetricsListener listener) {
+		LISTENERS.remove(listener);
+	}
+
+	/**
+	 * Gets the totals and histograms which are also registered with JMX
+	 *
+	 * @return returns the MXBean or null if metrics are disabled
+	 */
+	public static DEPQMetricsMXBean getMXBean() {
+		return RECORDER;
+	}
+
+	/**
+	 * Passes the metrics of an operation to the listeners
+	 *
+	 * @param operation   the operation
+	 * @param nanos       how long the operation took in nanoseconds
+	 * @param comparisons the number of elements compared
+	 * @param swaps       the number of elements swapped or moved
+	 * @param siftDepth   the number of levels the element moved
+	 */
+	static void operation(Operation operation, long nanos, int comparisons, int swaps, int siftDepth) {
+		for (DEPQMetricsListener listener : LISTENERS) {
+			listener.operation(operation, nanos, comparisons, swaps, siftDepth);
+		}
+	}
+
+	/**
+	 * Passes the metrics of an array resize to the listeners
+	 *
+	 * @param oldLength   the old length of the array
+	 * @param newLength   the new length of the array
+	 * @param bytesCopied the number of bytes copied
+	 */
+	static void resized(int oldLength, int newLength, long bytesCopied) {
+		for (DEPQMetricsListener listener : LISTENERS) {
+			listener.resized(oldLength, newLength, bytesCopied);
+		}
+	}
+}
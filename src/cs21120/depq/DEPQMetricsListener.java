@@ -0,0 +1,33 @@
+package cs21120.depq;
+
+/**
+ * Receives the metrics recorded by Daw48DEPQ when metrics are enabled, see
+ * DEPQMetrics. Listeners are called on the thread which used the queue, so
+ * they should be quick and must be thread-safe if the queues are used by
+ * more than one thread.
+ *
+ * @author Darren White
+ */
+public interface DEPQMetricsListener {
+
+	/**
+	 * Called after each operation on a queue
+	 *
+	 * @param operation   the operation
+	 * @param nanos       how long the operation took in nanoseconds
+	 * @param comparisons the number of elements compared
+	 * @param swaps       the number of elements swapped or moved in the array
+	 * @param siftDepth   the number of levels the element was moved up or down the heap
+	 */
+	void operation(DEPQMetrics.Operation operation, long nanos, int comparisons, int swaps, int siftDepth);
+
+	/**
+	 * Called after the array of a queue is expanded
+	 *
+	 * @param oldLength   the old length of the array
+	 * @param newLength   the new length of the array
+	 * @param bytesCopied the number of bytes copied into the new array
+	 */
+	default void resized(int oldLength, int newLength, long bytesCopied) {
+	}
+}
@@ -0,0 +1,72 @@
+package cs21120.depq;
+
+/**
+ * The metrics of every Daw48DEPQ in the JVM, registered with the platform
+ * MBean server as cs21120.depq:type=DEPQMetrics when metrics are enabled.
+ * The operations are named as in DEPQMetrics.Operation. The histograms have
+ * a bucket for each power of two: bucket 0 counts values of 0, and bucket
+ * i counts values from 2^(i - 1) up to 2^i - 1.
+ *
+ * @author Darren White
+ */
+public interface DEPQMetricsMXBean {
+
+	/**
+	 * Gets the number of times an operation was done
+	 *
+	 * @param operation the name of the operation
+	 * @return returns the number of operations
+	 */
+	long getCount(String operation);
+
+	/**
+	 * Gets the average number of comparisons in an operation
+	 *
+	 * @param operation the name of the operation
+	 * @return returns the average comparisons
+	 */
+	double getAverageComparisons(String operation);
+
+	/**
+	 * Gets the average number of swaps and moves in an operation
+	 *
+	 * @param operation the name of the operation
+	 * @return returns the average swaps
+	 */
+	double getAverageSwaps(String operation);
+
+	/**
+	 * Gets the histogram of the latencies of an operation in nanoseconds
+	 *
+	 * @param operation the name of the operation
+	 * @return returns the count in each bucket
+	 */
+	long[] getLatencyHistogram(String operation);
+
+	/**
+	 * Gets the histogram of how many levels an element was moved in an operation
+	 *
+	 * @param operation the name of the operation
+	 * @return returns the count in each bucket
+	 */
+	long[] getSiftDepthHistogram(String operation);
+
+	/**
+	 * Gets the number of times an array was expanded
+	 *
+	 * @return returns the number of resizes
+	 */
+	long getResizes();
+
+	/**
+	 * Gets the number of bytes copied when expanding arrays
+	 *
+	 * @return returns the bytes copied
+	 */
+	long getBytesCopied();
+
+	/**
+	 * Sets every metric back to 0
+	 */
+	void reset();
+}
@@ -3,8 +3,27 @@ package cs21120.depq;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
 
@@ -229,4 +248,1403 @@ public class DEPQTest {
 			assertEquals(1000 - i - 1, depq.size());
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Test of ordering a Daw48DEPQ with a comparator.
+	 */
+	@Test
+	public void testComparator() {
+		System.out.println("comparator");
+
+		depq = new Daw48DEPQ<>(Comparator.reverseOrder());
+
+		for (int i = 0; i < 1000; i++) {
+			depq.add(i);
+		}
+
+		for (int i = 0; i < 500; i++) {
+			assertEquals(999 - i, depq.getLeast().intValue());
+			assertEquals(i, depq.getMost().intValue());
+		}
+
+		assertEquals(true, depq.isEmpty());
+	}
+
+	/**
+	 * Test of ordering a Daw48DEPQ with a key extractor.
+	 */
+	@Test
+	public void testKeyExtractor() {
+		System.out.println("keyExtractor");
+
+		// Order by the last digit only
+		depq = new Daw48DEPQ<>((Integer c) -> c % 10);
+
+		for (int i = 0; i < 1000; i++) {
+			depq.add((int) (Math.random() * 100));
+		}
+
+		int last = -1;
+
+		for (int i = 0; i < 1000; i++) {
+			int key = depq.getLeast() % 10;
+
+			assertEquals(true, key >= last);
+			last = key;
+		}
+	}
+
+	/**
+	 * Test of building a Daw48DEPQ from a collection and adding many elements.
+	 */
+	@Test
+	public void testAddAll() {
+		System.out.println("addAll");
+
+		List<Integer> array = new ArrayList<>();
+
+		for (int i = 0; i < 1000; i++) {
+			array.add((int) (Math.random() * 100));
+		}
+
+		Daw48DEPQ<Integer> daw48 = new Daw48DEPQ<>(array);
+
+		assertEquals(1000, daw48.size());
+
+		// A small batch is added one at a time, a large one rebuilds the heap
+		daw48.addAll(new Integer[]{-1, 200});
+		daw48.addAll(array);
+
+		assertEquals(2002, daw48.size());
+		assertEquals(-1, daw48.inspectLeast().intValue());
+		assertEquals(200, daw48.inspectMost().intValue());
+
+		int last = daw48.getLeast();
+
+		for (int i = 1; i < 2002; i++) {
+			int next = daw48.getLeast();
+
+			assertEquals(true, next >= last);
+			last = next;
+		}
+	}
+
+	/**
+	 * Test of keeping the largest elements in a bounded Daw48DEPQ.
+	 */
+	@Test
+	public void testOfferBounded() {
+		System.out.println("offerBounded");
+
+		Daw48DEPQ<Integer> daw48 = new Daw48DEPQ<>(10, true);
+
+		for (int i = 0; i < 10; i++) {
+			assertEquals(null, daw48.offerBounded(i));
+		}
+
+		// Smaller than everything so rejected
+		assertEquals(-1, daw48.offerBounded(-1).intValue());
+		// Larger than the least so it is evicted
+		assertEquals(0, daw48.offerBounded(100).intValue());
+
+		assertEquals(10, daw48.size());
+		assertEquals(1, daw48.inspectLeast().intValue());
+		assertEquals(100, daw48.inspectMost().intValue());
+	}
+
+	/**
+	 * Test of reopening a MappedLongDEPQ.
+	 */
+	@Test
+	public void testMappedReopen() throws IOException {
+		System.out.println("mappedReopen");
+
+		Path path = Files.createTempFile("depq", ".bin");
+
+		try {
+			try (MappedLongDEPQ mapped = new MappedLongDEPQ(path)) {
+				for (int i = 0; i < 5000; i++) {
+					mapped.add((i * 7919) % 5000, i);
+				}
+
+				mapped.getLeastPayload();
+				mapped.getMostPayload();
+			}
+
+			try (MappedLongDEPQ mapped = new MappedLongDEPQ(path)) {
+				assertEquals(4998, mapped.size());
+				assertEquals(1, mapped.inspectLeastPriority());
+				assertEquals(4998, mapped.inspectMostPriority());
+
+				long last = mapped.inspectLeastPriority();
+
+				while (!mapped.isEmpty()) {
+					long next = mapped.inspectLeastPriority();
+
+					assertEquals(true, next >= last);
+					last = next;
+					mapped.getLeastPayload();
+				}
+			}
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	/**
+	 * Test of writing and reading snapshots.
+	 */
+	@Test
+	public void testSnapshot() throws IOException {
+		System.out.println("snapshot");
+
+		Daw48DEPQ<Integer> daw48 = new Daw48DEPQ<>();
+		LongDEPQ longs = new LongDEPQ();
+
+		for (int i = 0; i < 1000; i++) {
+			daw48.add((i * 7919) % 1000);
+			longs.addLong((i * 7919) % 1000);
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteArrayOutputStream longsOut = new ByteArrayOutputStream();
+		daw48.writeSnapshot(out, (c, o) -> o.writeInt(c));
+		longs.writeSnapshot(longsOut);
+
+		Daw48DEPQ<Integer> restored = new Daw48DEPQ<>();
+		LongDEPQ restoredLongs = new LongDEPQ();
+		restored.readSnapshot(new ByteArrayInputStream(out.toByteArray()), DataInput::readInt);
+		restoredLongs.readSnapshot(new ByteArrayInputStream(longsOut.toByteArray()));
+
+		assertEquals(1000, restored.size());
+		assertEquals(1000, restoredLongs.size());
+
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(daw48.getLeast(), restored.getLeast());
+			assertEquals(longs.getMostLong(), restoredLongs.getMostLong());
+		}
+	}
+
+	/**
+	 * Test of removing and changing elements through handles.
+	 */
+	@Test
+	public void testAddressable() {
+		System.out.println("addressable");
+
+		AddressableDaw48DEPQ<Integer> addressable = new AddressableDaw48DEPQ<>();
+		List<AddressableDEPQ.Handle<Integer>> handles = new ArrayList<>();
+
+		for (int i = 0; i < 100; i++) {
+			handles.add(addressable.insert(i));
+		}
+
+		// Remove the odd elements and move the multiples of 10 past the end
+		for (int i = 1; i < 100; i += 2) {
+			assertEquals(true, addressable.remove(handles.get(i)));
+			assertEquals(false, handles.get(i).isValid());
+		}
+
+		for (int i = 0; i < 100; i += 10) {
+			addressable.changeKey(handles.get(i), 100 + i);
+		}
+
+		assertEquals(false, addressable.remove(handles.get(1)));
+		assertEquals(50, addressable.size());
+		assertEquals(2, addressable.inspectLeast().intValue());
+		assertEquals(190, addressable.inspectMost().intValue());
+
+		for (int i = 0; i < 100; i += 10) {
+			assertEquals(100 + (90 - i), addressable.getMost().intValue());
+		}
+
+		assertEquals(98, addressable.getMost().intValue());
+	}
+
+	/**
+	 * Test of melding another DEPQ into a Daw48DEPQ.
+	 */
+	@Test
+	public void testMeld() {
+		System.out.println("meld");
+
+		Daw48DEPQ<Integer> daw48 = new Daw48DEPQ<>();
+		Daw48DEPQ<Integer> other = new Daw48DEPQ<>();
+
+		for (int i = 0; i < 1000; i++) {
+			daw48.add(i * 2);
+			other.add(i * 2 + 1);
+		}
+
+		daw48.meld(other);
+
+		assertEquals(true, other.isEmpty());
+		assertEquals(2000, daw48.size());
+
+		for (int i = 0; i < 2000; i++) {
+			assertEquals(i, daw48.getLeast().intValue());
+		}
+
+		// An empty queue must still be able to grow after
+		// melding a bounded queue with a tiny array
+		Daw48DEPQ<Integer> bounded = new Daw48DEPQ<>(1, true);
+		bounded.add(5);
+		daw48.meld(bounded);
+
+		for (int i = 0; i < 10; i++) {
+			daw48.add(i);
+		}
+
+		assertEquals(true, bounded.isEmpty());
+		assertEquals(11, daw48.size());
+		assertEquals(9, daw48.getMost().intValue());
+		assertEquals(8, daw48.getMost().intValue());
+		assertEquals(7, daw48.getMost().intValue());
+		assertEquals(6, daw48.getMost().intValue());
+		assertEquals(5, daw48.getMost().intValue());
+		assertEquals(5, daw48.getMost().intValue());
+	}
+
+	/**
+	 * Test of streaming a Daw48DEPQ without changing it.
+	 */
+	@Test
+	public void testStreams() {
+		System.out.println("streams");
+
+		Daw48DEPQ<Integer> daw48 = new Daw48DEPQ<>();
+
+		for (int i = 0; i < 1000; i++) {
+			daw48.add((i * 7919) % 1000);
+		}
+
+		List<Integer> ascending = daw48.ascendingStream().limit(10).collect(Collectors.toList());
+		List<Integer> descending = daw48.descendingStream().limit(10).collect(Collectors.toList());
+
+		for (int i = 0; i < 10; i++) {
+			assertEquals(i, ascending.get(i).intValue());
+			assertEquals(999 - i, descending.get(i).intValue());
+		}
+
+		assertEquals(499500, daw48.unorderedStream().parallel().mapToInt(Integer::intValue).sum());
+		assertEquals(1000, daw48.size());
+	}
+
+	/**
+	 * Test of the blocked layout across several blocks.
+	 */
+	@Test
+	public void testBlocked() {
+		System.out.println("blocked");
+
+		BlockedLongDEPQ blocked = new BlockedLongDEPQ(3);
+
+		for (int i = 0; i < 1000; i++) {
+			blocked.addLong((i * 7919) % 1000);
+		}
+
+		assertEquals(0, blocked.inspectLeastLong());
+		assertEquals(999, blocked.inspectMostLong());
+
+		for (int i = 0; i < 500; i++) {
+			assertEquals(i, blocked.getLeastLong());
+			assertEquals(999 - i, blocked.getMostLong());
+		}
+
+		assertEquals(true, blocked.isEmpty());
+		assertEquals(null, blocked.getLeast());
+	}
+
+	/**
+	 * Test of the relaxed multi-queue, which is exact with one shard.
+	 */
+	@Test
+	public void testMultiQueue() {
+		System.out.println("multiQueue");
+
+		MultiQueueDEPQ<Integer> single = new MultiQueueDEPQ<>(1);
+		MultiQueueDEPQ<Integer> relaxed = new MultiQueueDEPQ<>(8);
+
+		for (int i = 0; i < 1000; i++) {
+			single.add(i);
+			relaxed.add(i);
+		}
+
+		assertEquals(0, relaxed.inspectLeast().intValue());
+		assertEquals(999, relaxed.inspectMost().intValue());
+
+		long sum = 0;
+
+		for (int i = 0; i < 500; i++) {
+			assertEquals(i, single.getLeast().intValue());
+			assertEquals(999 - i, single.getMost().intValue());
+			sum += relaxed.getLeast() + relaxed.getMost();
+		}
+
+		// Every element comes out once, in some order
+		assertEquals(499500, sum);
+		assertEquals(true, relaxed.isEmpty());
+		assertEquals(null, relaxed.getLeast());
+	}
+
+	/**
+	 * Test of building a heap large enough to be built in parallel.
+	 */
+	@Test
+	public void testParallelHeapify() {
+		System.out.println("parallelHeapify");
+
+		int n = Daw48DEPQ.PARALLEL_HEAPIFY_THRESHOLD + 3;
+		Integer[] values = new Integer[n];
+
+		for (int i = 0; i < n; i++) {
+			values[i] = (int) ((i * 2654435761L) % n);
+		}
+
+		Daw48DEPQ<Integer> daw48 = new Daw48DEPQ<>();
+		daw48.addAll(values);
+
+		assertEquals(n, daw48.size());
+
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(i, daw48.getLeast().intValue());
+			assertEquals(n - 1 - i, daw48.getMost().intValue());
+		}
+	}
+
+	/**
+	 * Test of the bucket queue, equal priorities come out in the order
+	 * they were added.
+	 */
+	@Test
+	public void testBucket() {
+		System.out.println("bucket");
+
+		BucketDEPQ<String> bucket = new BucketDEPQ<>(65535, String::length);
+
+		bucket.add("bb");
+		bucket.add("a");
+		bucket.add("cc");
+		bucket.add("ddd");
+		bucket.add("e");
+
+		assertEquals("a", bucket.inspectLeast());
+		assertEquals("ddd", bucket.inspectMost());
+		assertEquals("ddd", bucket.getMost());
+		assertEquals("bb", bucket.getMost());
+		assertEquals("a", bucket.getLeast());
+		assertEquals("e", bucket.getLeast());
+		assertEquals("cc", bucket.getLeast());
+		assertEquals(true, bucket.isEmpty());
+		assertEquals(null, bucket.getMost());
+	}
+
+	/**
+	 * Test of tracking quantiles over all samples and over a window.
+	 */
+	@Test
+	public void testQuantiles() {
+		System.out.println("quantiles");
+
+		QuantileTracker<Integer> all = new QuantileTracker<>(0.5, 0.95, 0.99);
+		QuantileTracker<Integer> window = new QuantileTracker<>(100, null, 0.5);
+
+		for (int i = 1000; i >= 1; i--) {
+			all.add(i);
+			window.add(i);
+		}
+
+		assertEquals(500, all.quantile(0).intValue());
+		assertEquals(950, all.quantile(1).intValue());
+		assertEquals(990, all.quantile(2).intValue());
+
+		// Only 1 to 100 are left in the window
+		assertEquals(100, window.size());
+		assertEquals(50, window.quantile(0).intValue());
+	}
+
+	/**
+	 * Test of a queue which spills most of its elements to disk.
+	 */
+	@Test
+	public void testExternal() throws IOException {
+		System.out.println("external");
+
+		Path directory = Files.createTempDirectory("depq");
+
+		try (ExternalDEPQ<Integer> external = new ExternalDEPQ<>(16, directory,
+				(c, out) -> out.writeInt(c), DataInput::readInt)) {
+			for (int i = 0; i < 5000; i++) {
+				external.add((i * 7919) % 5000);
+			}
+
+			assertEquals(5000, external.size());
+			assertEquals(0, external.inspectLeast().intValue());
+			assertEquals(4999, external.inspectMost().intValue());
+
+			for (int i = 0; i < 2500; i++) {
+				assertEquals(i, external.getLeast().intValue());
+				assertEquals(4999 - i, external.getMost().intValue());
+			}
+
+			assertEquals(true, external.isEmpty());
+		} finally {
+			Files.delete(directory);
+		}
+	}
+
+	/**
+	 * Test of the fused replace and addThenGet operations.
+	 */
+	@Test
+	public void testReplace() {
+		System.out.println("replace");
+
+		Daw48DEPQ<Integer> daw48 = new Daw48DEPQ<>();
+
+		assertEquals(null, daw48.replaceLeast(5));
+		assertEquals(7, daw48.addThenGetMost(7).intValue());
+
+		for (int i = 0; i < 10; i++) {
+			daw48.add(i * 10);
+		}
+
+		assertEquals(0, daw48.replaceLeast(95).intValue());
+		assertEquals(95, daw48.replaceMost(1).intValue());
+		assertEquals(-1, daw48.addThenGetLeast(-1).intValue());
+		assertEquals(1, daw48.addThenGetLeast(55).intValue());
+		assertEquals(90, daw48.addThenGetMost(2).intValue());
+		assertEquals(11, daw48.size());
+		assertEquals(2, daw48.inspectLeast().intValue());
+		assertEquals(80, daw48.inspectMost().intValue());
+	}
+
+	/**
+	 * Test of peekLeast and peekMost, of class Daw48DEPQ.
+	 */
+	@Test
+	public void testPeek() {
+		System.out.println("peek");
+
+		Daw48DEPQ<Integer> daw48 = new Daw48DEPQ<>();
+		Integer[] out = new Integer[5];
+
+		assertEquals(0, daw48.peekLeast(3, out));
+
+		for (int i = 0; i < 100; i++) {
+			daw48.add((i * 37) % 100);
+		}
+
+		assertEquals(3, daw48.peekLeast(3, out));
+		assertEquals(0, out[0].intValue());
+		assertEquals(1, out[1].intValue());
+		assertEquals(2, out[2].intValue());
+		assertEquals(5, daw48.peekMost(10, out));
+		assertEquals(99, out[0].intValue());
+		assertEquals(95, out[4].intValue());
+		assertEquals(100, daw48.size());
+		assertEquals(0, daw48.getLeast().intValue());
+	}
+
+	/**
+	 * Test of removeLessThan, removeGreaterThan and removeIf, of class Daw48DEPQ.
+	 */
+	@Test
+	public void testRemoveRange() {
+		System.out.println("removeRange");
+
+		Daw48DEPQ<Integer> daw48 = new Daw48DEPQ<>();
+
+		assertEquals(0, daw48.removeLessThan(10));
+
+		for (int i = 0; i < 1000; i++) {
+			daw48.add(i);
+		}
+
+		// Few enough to remove from the end
+		assertEquals(5, daw48.removeLessThan(5));
+		assertEquals(5, daw48.inspectLeast().intValue());
+		// Enough to compact and rebuild
+		assertEquals(499, daw48.removeGreaterThan(500));
+		assertEquals(500, daw48.inspectMost().intValue());
+		assertEquals(248, daw48.removeIf(i -> i % 2 == 1));
+		assertEquals(248, daw48.size());
+		assertEquals(6, daw48.getLeast().intValue());
+		assertEquals(500, daw48.getMost().intValue());
+		assertEquals(8, daw48.inspectLeast().intValue());
+	}
+
+	/**
+	 * Test of LongDEPQ against a sorted list.
+	 */
+	@Test
+	public void testLongDEPQ() {
+		System.out.println("LongDEPQ");
+
+		Random random = new Random(2);
+		LongDEPQ longs = new LongDEPQ(2);
+		List<Long> sorted = new ArrayList<>();
+
+		for (int i = 0; i < 5000; i++) {
+			int op = random.nextInt(4);
+
+			if (op < 2 || sorted.isEmpty()) {
+				long c = random.nextInt(3) == 0 ? random.nextLong() : random.nextInt(50);
+				longs.addLong(c);
+				sorted.add(c);
+				Collections.sort(sorted);
+			} else if (op == 2) {
+				assertEquals(sorted.remove(0).longValue(), longs.getLeastLong());
+			} else {
+				assertEquals(sorted.remove(sorted.size() - 1).longValue(), longs.getMostLong());
+			}
+
+			assertEquals(sorted.size(), longs.size());
+
+			if (!sorted.isEmpty()) {
+				assertEquals(sorted.get(0).longValue(), longs.inspectLeastLong());
+				assertEquals(sorted.get(sorted.size() - 1).longValue(), longs.inspectMostLong());
+			}
+		}
+
+		assertEquals(null, new LongDEPQ().getMost());
+	}
+
+	/**
+	 * Test of IntDEPQ against a sorted list.
+	 */
+	@Test
+	public void testIntDEPQ() {
+		System.out.println("IntDEPQ");
+
+		Random random = new Random(3);
+		IntDEPQ ints = new IntDEPQ(2);
+		List<Integer> sorted = new ArrayList<>();
+
+		for (int i = 0; i < 5000; i++) {
+			int op = random.nextInt(4);
+
+			if (op < 2 || sorted.isEmpty()) {
+				int c = random.nextInt(3) == 0 ? random.nextInt() : random.nextInt(50);
+				ints.addInt(c);
+				sorted.add(c);
+				Collections.sort(sorted);
+			} else if (op == 2) {
+				assertEquals(sorted.remove(0).intValue(), ints.getLeastInt());
+			} else {
+				assertEquals(sorted.remove(sorted.size() - 1).intValue(), ints.getMostInt());
+			}
+
+			assertEquals(sorted.size(), ints.size());
+
+			if (!sorted.isEmpty()) {
+				assertEquals(sorted.get(0).intValue(), ints.inspectLeastInt());
+				assertEquals(sorted.get(sorted.size() - 1).intValue(), ints.inspectMostInt());
+			}
+		}
+
+		assertEquals(null, new IntDEPQ().getLeast());
+	}
+
+	/**
+	 * Test of DoubleDEPQ against a sorted list.
+	 */
+	@Test
+	public void testDoubleDEPQ() {
+		System.out.println("DoubleDEPQ");
+
+		Random random = new Random(4);
+		DoubleDEPQ doubles = new DoubleDEPQ(2);
+		List<Double> sorted = new ArrayList<>();
+
+		for (int i = 0; i < 5000; i++) {
+			int op = random.nextInt(4);
+
+			if (op < 2 || sorted.isEmpty()) {
+				double c = random.nextInt(3) == 0 ? random.nextGaussian() : random.nextInt(50);
+				doubles.addDouble(c);
+				sorted.add(c);
+				Collections.sort(sorted);
+			} else if (op == 2) {
+				assertEquals(sorted.remove(0), doubles.getLeast());
+			} else {
+				assertEquals(sorted.remove(sorted.size() - 1), doubles.getMost());
+			}
+
+			assertEquals(sorted.size(), doubles.size());
+
+			if (!sorted.isEmpty()) {
+				assertEquals(sorted.get(0), doubles.inspectLeast());
+				assertEquals(sorted.get(sorted.size() - 1), doubles.inspectMost());
+			}
+		}
+	}
+
+	/**
+	 * Test of the order of NaN, infinities and signed zeros in DoubleDEPQ.
+	 */
+	@Test
+	public void testDoubleDEPQSpecialValues() {
+		System.out.println("DoubleDEPQ special values");
+
+		DoubleDEPQ doubles = new DoubleDEPQ();
+		double[] values = {Double.NaN, 0.0, 1.0, -0.0, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, -1.0,
+				0.0, Double.NaN, -0.0};
+
+		for (double c : values) {
+			doubles.addDouble(c);
+		}
+
+		// Double.compare puts -0.0 before 0.0 and NaN after everything
+		assertEquals(Double.valueOf(Double.NEGATIVE_INFINITY), doubles.getLeast());
+		assertEquals(Double.valueOf(-1.0), doubles.getLeast());
+		assertEquals(Double.valueOf(-0.0), doubles.getLeast());
+		assertEquals(Double.valueOf(-0.0), doubles.getLeast());
+		assertEquals(Double.valueOf(0.0), doubles.getLeast());
+		assertEquals(Double.valueOf(Double.NaN), doubles.getMost());
+		assertEquals(Double.valueOf(Double.NaN), doubles.getMost());
+		assertEquals(Double.valueOf(Double.POSITIVE_INFINITY), doubles.getMost());
+		assertEquals(Double.valueOf(1.0), doubles.getMost());
+		assertEquals(Double.valueOf(0.0), doubles.getMost());
+		assertEquals(true, doubles.isEmpty());
+	}
+
+	/**
+	 * Test of drainLeast, drainMost, drainLeastWhile and drainMostWhile, of class Daw48DEPQ.
+	 */
+	@Test
+	public void testDrain() {
+		System.out.println("drain");
+
+		Daw48DEPQ<Integer> daw48 = new Daw48DEPQ<>();
+		Integer[] out = new Integer[10];
+		List<Integer> list = new ArrayList<>();
+
+		// Nothing to drain from an empty queue
+		assertEquals(0, daw48.drainLeast(5, out));
+		assertEquals(0, daw48.drainMost(5, list));
+		assertEquals(0, daw48.drainLeastWhile(i -> true, out));
+		assertEquals(true, list.isEmpty());
+
+		for (int i = 0; i < 100; i++) {
+			daw48.add((i * 37) % 100);
+		}
+
+		// Limited by k
+		assertEquals(3, daw48.drainLeast(3, out));
+		assertEquals(0, out[0].intValue());
+		assertEquals(2, out[2].intValue());
+		assertEquals(2, daw48.drainMost(2, out));
+		assertEquals(99, out[0].intValue());
+		assertEquals(98, out[1].intValue());
+		assertEquals(0, daw48.drainLeast(0, out));
+
+		// Limited by the array
+		assertEquals(10, daw48.drainLeast(50, out));
+		assertEquals(3, out[0].intValue());
+		assertEquals(12, out[9].intValue());
+
+		// Limited by a condition
+		assertEquals(5, daw48.drainLeastWhile(i -> i < 18, out));
+		assertEquals(17, out[4].intValue());
+		assertEquals(3, daw48.drainMostWhile(i -> i > 94, out));
+		assertEquals(95, out[2].intValue());
+		assertEquals(77, daw48.size());
+
+		// Limited by the size
+		assertEquals(77, daw48.drainMost(1000, list));
+		assertEquals(94, list.get(0).intValue());
+		assertEquals(18, list.get(76).intValue());
+		assertEquals(true, daw48.isEmpty());
+	}
+
+	/**
+	 * Test of ConcurrentSkipListDEPQ against a sorted list on one thread.
+	 */
+	@Test
+	public void testConcurrentSkipList() {
+		System.out.println("ConcurrentSkipListDEPQ");
+
+		Random random = new Random(6);
+		ConcurrentSkipListDEPQ<Integer> skipList = new ConcurrentSkipListDEPQ<>(Comparator.reverseOrder());
+		List<Integer> sorted = new ArrayList<>();
+
+		assertEquals(null, skipList.getLeast());
+		assertEquals(null, skipList.inspectMost());
+
+		for (int i = 0; i < 5000; i++) {
+			int op = random.nextInt(4);
+
+			// Plenty of equal elements
+			if (op < 2 || sorted.isEmpty()) {
+				int c = random.nextInt(50);
+				skipList.add(c);
+				sorted.add(c);
+				sorted.sort(Comparator.reverseOrder());
+			} else if (op == 2) {
+				assertEquals(sorted.remove(0), skipList.getLeast());
+			} else {
+				assertEquals(sorted.remove(sorted.size() - 1), skipList.getMost());
+			}
+
+			assertEquals(sorted.size(), skipList.size());
+			assertEquals(sorted.isEmpty(), skipList.isEmpty());
+
+			if (!sorted.isEmpty()) {
+				assertEquals(sorted.get(0), skipList.inspectLeast());
+				assertEquals(sorted.get(sorted.size() - 1), skipList.inspectMost());
+			}
+		}
+	}
+
+	/**
+	 * Test of ConcurrentSkipListDEPQ shared by many threads, every element
+	 * must be removed exactly once.
+	 *
+	 * @throws InterruptedException if interrupted while waiting for the threads
+	 */
+	@Test
+	public void testConcurrentSkipListThreads() throws InterruptedException {
+		System.out.println("ConcurrentSkipListDEPQ threads");
+
+		ConcurrentSkipListDEPQ<Integer> skipList = new ConcurrentSkipListDEPQ<>();
+		int threads = 4;
+		int perThread = 20000;
+		int[] counts = new int[threads * perThread];
+		int[][] removed = new int[threads][perThread];
+		Thread[] workers = new Thread[threads];
+
+		for (int t = 0; t < threads; t++) {
+			int id = t;
+
+			workers[t] = new Thread(() -> {
+				// Add every element and remove half of them as we go
+				for (int i = 0; i < perThread; i++) {
+					skipList.add(i * threads + id);
+
+					if ((i & 1) == 1) {
+						Integer c = (i & 2) == 0 ? skipList.getLeast() : skipList.getMost();
+						removed[id][i >> 1] = c;
+					}
+				}
+			});
+			workers[t].start();
+		}
+
+		for (Thread worker : workers) {
+			worker.join();
+		}
+
+		assertEquals(threads * perThread / 2, skipList.size());
+
+		for (int[] r : removed) {
+			for (int i = 0; i < perThread / 2; i++) {
+				counts[r[i]]++;
+			}
+		}
+
+		int previous = -1;
+
+		while (!skipList.isEmpty()) {
+			int c = skipList.getLeast();
+
+			// The rest come out in order
+			assertEquals(true, c > previous);
+			counts[c]++;
+			previous = c;
+		}
+
+		for (int count : counts) {
+			assertEquals(1, count);
+		}
+	}
+
+	/**
+	 * Test of put, takeLeast and takeMost, of class Daw48BlockingDEPQ,
+	 * with producers waiting on a small bounded queue.
+	 *
+	 * @throws InterruptedException if interrupted while waiting for the threads
+	 */
+	@Test(timeout = 30000)
+	public void testBlockingProducerConsumer() throws InterruptedException {
+		System.out.println("blocking producer consumer");
+
+		Daw48BlockingDEPQ<Integer> blocking = new Daw48BlockingDEPQ<>(4);
+		int perThread = 5000;
+		int[] counts = new int[2 * perThread];
+		int[][] taken = new int[2][perThread];
+		List<Thread> threads = new ArrayList<>();
+
+		for (int t = 0; t < 2; t++) {
+			int id = t;
+
+			// Producers wait in put when the queue is full
+			threads.add(new Thread(() -> {
+				try {
+					for (int i = 0; i < perThread; i++) {
+						blocking.put(i * 2 + id);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}));
+
+			// Consumers wait in take when the queue is empty
+			threads.add(new Thread(() -> {
+				try {
+					for (int i = 0; i < perThread; i++) {
+						taken[id][i] = id == 0 ? blocking.takeLeast() : blocking.takeMost();
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}));
+		}
+
+		for (Thread thread : threads) {
+			thread.start();
+		}
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		for (int[] t : taken) {
+			for (int c : t) {
+				counts[c]++;
+			}
+		}
+
+		for (int count : counts) {
+			assertEquals(1, count);
+		}
+
+		assertEquals(true, blocking.isEmpty());
+		assertEquals(4, blocking.remainingCapacity());
+	}
+
+	/**
+	 * Test of the timed offer and poll methods, of class Daw48BlockingDEPQ.
+	 *
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	@Test(timeout = 30000)
+	public void testBlockingTimeout() throws InterruptedException {
+		System.out.println("blocking timeout");
+
+		Daw48BlockingDEPQ<Integer> blocking = new Daw48BlockingDEPQ<>(2);
+
+		assertEquals(null, blocking.pollLeast(10, TimeUnit.MILLISECONDS));
+		assertEquals(true, blocking.offer(1));
+		assertEquals(true, blocking.offer(2, 10, TimeUnit.MILLISECONDS));
+		assertEquals(false, blocking.offer(3));
+
+		// Nothing makes room so the timed offer gives up
+		long start = System.nanoTime();
+		assertEquals(false, blocking.offer(3, 50, TimeUnit.MILLISECONDS));
+		assertEquals(true, System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+		assertEquals(2, blocking.size());
+
+		// A removal wakes up the waiting offer
+		Thread remover = new Thread(() -> {
+			try {
+				Thread.sleep(50);
+				blocking.getMost();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		remover.start();
+
+		assertEquals(true, blocking.offer(0, 20, TimeUnit.SECONDS));
+		remover.join();
+		assertEquals(0, blocking.pollLeast(0, TimeUnit.SECONDS).intValue());
+		assertEquals(1, blocking.pollMost(0, TimeUnit.SECONDS).intValue());
+	}
+
+	/**
+	 * Test of OffHeapLongDEPQ against a sorted list, and with enough records
+	 * to need a second segment.
+	 */
+	@Test
+	public void testOffHeap() {
+		System.out.println("offHeap");
+
+		Random random = new Random(10);
+		List<Long> sorted = new ArrayList<>();
+
+		try (OffHeapLongDEPQ offHeap = new OffHeapLongDEPQ(2)) {
+			for (int i = 0; i < 5000; i++) {
+				int op = random.nextInt(4);
+
+				if (op < 2 || sorted.isEmpty()) {
+					long c = random.nextInt(100);
+					// The payload is the priority negated
+					offHeap.add(c, -c);
+					sorted.add(c);
+					Collections.sort(sorted);
+				} else if (op == 2) {
+					assertEquals(-sorted.remove(0), offHeap.getLeastPayload());
+				} else {
+					assertEquals(-sorted.remove(sorted.size() - 1), offHeap.getMostPayload());
+				}
+
+				assertEquals(sorted.size(), offHeap.size());
+			}
+		}
+
+		// A full segment plus a few more, each priority once
+		int n = AbstractLongRecordDEPQ.SEGMENT_MASK + 1 + 1000;
+
+		try (OffHeapLongDEPQ offHeap = new OffHeapLongDEPQ()) {
+			for (int i = 0; i < n; i++) {
+				long c = (i * 7919L) % n;
+				offHeap.add(c, -c);
+			}
+
+			assertEquals(n, offHeap.size());
+
+			// Every removal moves a record from the second
+			// segment to the root and sifts it down
+			for (int i = 0; i < 2000; i++) {
+				assertEquals(i, offHeap.inspectLeastPriority());
+				assertEquals(-i, offHeap.getLeastPayload());
+				assertEquals(n - 1 - i, offHeap.inspectMostPriority());
+				assertEquals(-(n - 1 - i), offHeap.getMostPayload());
+			}
+
+			assertEquals(n - 4000, offHeap.size());
+			assertEquals(true, offHeap.isHeap());
+		}
+	}
+
+	/**
+	 * Test of reopening a MappedLongDEPQ whose file was not closed cleanly
+	 * and whose records are not a valid heap.
+	 */
+	@Test
+	public void testMappedDirtyReopen() throws IOException {
+		System.out.println("mappedDirtyReopen");
+
+		Path path = Files.createTempFile("depq", ".bin");
+		int n = 1000;
+
+		try {
+			try (MappedLongDEPQ mapped = new MappedLongDEPQ(path)) {
+				for (int i = 0; i < n; i++) {
+					mapped.add(i, -i);
+				}
+			}
+
+			// Write the records in descending order, as if the process died
+			// part way through changing them, and mark the file as dirty
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				ByteBuffer records = ByteBuffer.allocate(n * AbstractLongRecordDEPQ.RECORD_BYTES)
+						.order(ByteOrder.LITTLE_ENDIAN);
+
+				for (int i = 0; i < n; i++) {
+					records.putLong(n - 1 - i).putLong(-(n - 1 - i));
+				}
+
+				// Buffer methods are used so this also runs on Java 8
+				((Buffer) records).flip();
+				channel.write(records, MappedLongDEPQ.HEADER_BYTES);
+
+				ByteBuffer state = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+				state.putInt(MappedLongDEPQ.DIRTY);
+				((Buffer) state).flip();
+				channel.write(state, MappedLongDEPQ.STATE_OFFSET);
+			}
+
+			try (MappedLongDEPQ mapped = new MappedLongDEPQ(path)) {
+				assertEquals(true, mapped.isHeap());
+				assertEquals(n, mapped.size());
+
+				for (int i = 0; i < n / 2; i++) {
+					assertEquals(i, mapped.inspectLeastPriority());
+					assertEquals(-i, mapped.getLeastPayload());
+				}
+			}
+
+			// It was rebuilt and forced so it opens cleanly
+			try (MappedLongDEPQ mapped = new MappedLongDEPQ(path)) {
+				assertEquals(n / 2, mapped.size());
+				assertEquals(n - 1, mapped.inspectMostPriority());
+				assertEquals(-(n - 1), mapped.getMostPayload());
+			}
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	/**
+	 * Test of reading corrupt and truncated snapshots.
+	 */
+	@Test
+	public void testSnapshotCorrupt() throws IOException {
+		System.out.println("snapshotCorrupt");
+
+		Daw48DEPQ<Integer> daw48 = new Daw48DEPQ<>();
+		Daw48DEPQ<Integer> keyed = new Daw48DEPQ<>((ToLongFunction<Integer>) Integer::longValue);
+		LongDEPQ longs = new LongDEPQ();
+		IntDEPQ ints = new IntDEPQ();
+		DoubleDEPQ doubles = new DoubleDEPQ();
+
+		daw48.add(1);
+		keyed.add(1);
+
+		// A huge size with only a few elements must not allocate for the size
+		byte[] huge = snapshot(Snapshots.OBJECT, Integer.MAX_VALUE, 100_000);
+
+		assertEquals(true, isCorrupt(() -> daw48.readSnapshot(new ByteArrayInputStream(huge), DataInput::readInt)));
+		assertEquals(true, isCorrupt(() -> keyed.readSnapshot(new ByteArrayInputStream(huge), DataInput::readInt)));
+		assertEquals(true, isCorrupt(() -> longs.readSnapshot(
+				new ByteArrayInputStream(snapshot(Snapshots.LONG, Integer.MAX_VALUE, 100_000)))));
+		assertEquals(true, isCorrupt(() -> ints.readSnapshot(
+				new ByteArrayInputStream(snapshot(Snapshots.INT, Integer.MAX_VALUE, 100_000)))));
+		assertEquals(true, isCorrupt(() -> doubles.readSnapshot(
+				new ByteArrayInputStream(snapshot(Snapshots.DOUBLE, Integer.MAX_VALUE, 100_000)))));
+
+		// A negative size
+		assertEquals(true, isCorrupt(() -> daw48.readSnapshot(
+				new ByteArrayInputStream(snapshot(Snapshots.OBJECT, -1, 0)), DataInput::readInt)));
+		assertEquals(true, isCorrupt(() -> longs.readSnapshot(
+				new ByteArrayInputStream(snapshot(Snapshots.LONG, -5, 0)))));
+
+		// The queues are left unchanged
+		assertEquals(1, daw48.size());
+		assertEquals(1, keyed.inspectMost().intValue());
+		assertEquals(true, longs.isEmpty());
+
+		// A size larger than the first array is read in full
+		byte[] large = snapshot(Snapshots.INT, 200_000, 200_000);
+		ints.readSnapshot(new ByteArrayInputStream(large));
+		daw48.readSnapshot(new ByteArrayInputStream(snapshot(Snapshots.OBJECT, 200_000, 200_000)), DataInput::readInt);
+
+		assertEquals(200_000, ints.size());
+		assertEquals(200_000, daw48.size());
+	}
+
+	/**
+	 * Creates a snapshot of ints or longs whose values are all zero,
+	 * which is a valid heap
+	 *
+	 * @param type   the type of the elements in the header
+	 * @param size   the number of elements in the header
+	 * @param values the number of values actually written
+	 * @return returns the snapshot
+	 */
+	private static byte[] snapshot(byte type, int size, int values) {
+		int bytes = type == Snapshots.OBJECT || type == Snapshots.INT ? 4 : 8;
+		ByteBuffer buffer = ByteBuffer.allocate(9 + values * bytes);
+
+		buffer.putInt(Snapshots.MAGIC).put(type).putInt(size);
+
+		return buffer.array();
+	}
+
+	/**
+	 * Checks if reading a snapshot throws a StreamCorruptedException
+	 *
+	 * @param read reads the snapshot
+	 * @return returns true if the snapshot is corrupt
+	 */
+	private static boolean isCorrupt(SnapshotRead read) throws IOException {
+		try {
+			read.run();
+		} catch (StreamCorruptedException e) {
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Reads a snapshot
+	 */
+	private interface SnapshotRead {
+
+		/**
+		 * Reads the snapshot
+		 *
+		 * @throws IOException if the snapshot cannot be read
+		 */
+		void run() throws IOException;
+	}
+
+	/**
+	 * Test of the metrics recorded by a Daw48DEPQ. These are only recorded
+	 * when the JVM is started with -Dcs21120.depq.metrics=true, which the
+	 * metrics execution in the pom does for this test.
+	 */
+	@Test
+	public void testMetrics() {
+		System.out.println("metrics");
+
+		List<String> recorded = new ArrayList<>();
+		DEPQMetricsListener listener = (operation, nanos, comparisons, swaps, siftDepth) ->
+				recorded.add(operation + " " + comparisons + " " + swaps + " " + siftDepth);
+		DEPQMetricsMXBean mxBean = DEPQMetrics.getMXBean();
+
+		if (mxBean != null) {
+			mxBean.reset();
+		}
+
+		DEPQMetrics.addListener(listener);
+
+		try {
+			Daw48DEPQ<Integer> daw48 = new Daw48DEPQ<>();
+			daw48.add(5);
+			daw48.add(3);
+			daw48.add(9);
+			daw48.getMost();
+			daw48.getMost();
+			// The only element is the most as well as the least
+			daw48.getMost();
+			daw48.add(7);
+			// Not recorded, so its comparison must not be
+			// counted by the next add
+			daw48.removeLessThan(0);
+			daw48.add(8);
+
+			// An offer with space is still an offer
+			new Daw48DEPQ<Integer>(2, true).offerBounded(1);
+		} finally {
+			DEPQMetrics.removeListener(listener);
+		}
+
+		if (!DEPQMetrics.ENABLED) {
+			assertEquals(0, recorded.size());
+			assertEquals(null, mxBean);
+			return;
+		}
+
+		List<String> expected = new ArrayList<>();
+		expected.add("ADD 0 0 0");
+		expected.add("ADD 1 1 0");
+		expected.add("ADD 3 1 1");
+		expected.add("GET_MOST 0 1 0");
+		expected.add("GET_MOST 0 1 0");
+		expected.add("GET_MOST 0 0 0");
+		expected.add("ADD 0 0 0");
+		expected.add("ADD 1 0 0");
+		expected.add("OFFER 0 0 0");
+
+		assertEquals(expected, recorded);
+		assertEquals(5, mxBean.getCount("ADD"));
+		assertEquals(3, mxBean.getCount("GET_MOST"));
+		assertEquals(0, mxBean.getCount("GET_LEAST"));
+		assertEquals(1, mxBean.getCount("OFFER"));
+		assertEquals(1.0, mxBean.getAverageComparisons("ADD"), 0);
+		assertEquals(1, mxBean.getSiftDepthHistogram("ADD")[1]);
+	}
+
+	/**
+	 * Test of an AddressableDaw48DEPQ against a sorted list, checking that
+	 * every handle still refers to its element after each step.
+	 */
+	@Test
+	public void testAddressableRandom() {
+		System.out.println("addressableRandom");
+
+		Random random = new Random(13);
+
+		for (int round = 0; round < 4; round++) {
+			Comparator<Integer> order = round % 2 == 0 ? Comparator.naturalOrder() : Comparator.reverseOrder();
+			AddressableDaw48DEPQ<Integer> addressable = new AddressableDaw48DEPQ<>(round % 2 == 0 ? null : order);
+			List<AddressableDEPQ.Handle<Integer>> handles = new ArrayList<>();
+			List<Integer> values = new ArrayList<>();
+			// Small ranges give lots of duplicates
+			int range = round < 2 ? 20 : 1000;
+
+			for (int i = 0; i < 3000; i++) {
+				int op = random.nextInt(7);
+
+				if (op < 2 || handles.isEmpty()) {
+					int c = random.nextInt(range);
+					handles.add(addressable.insert(c));
+					values.add(c);
+				} else if (op == 2) {
+					int j = random.nextInt(handles.size());
+					AddressableDEPQ.Handle<Integer> handle = handles.remove(j);
+					values.remove(j);
+					assertEquals(true, addressable.remove(handle));
+					assertEquals(false, handle.isValid());
+					assertEquals(false, addressable.remove(handle));
+				} else if (op < 5) {
+					// Move the element up or down
+					int j = random.nextInt(handles.size());
+					int c = values.get(j) + (op == 3 ? 1 : -1) * random.nextInt(range);
+					addressable.changeKey(handles.get(j), c);
+					values.set(j, c);
+				} else {
+					List<Integer> sorted = new ArrayList<>(values);
+					sorted.sort(order);
+					int expected = op == 5 ? sorted.get(0) : sorted.get(sorted.size() - 1);
+					assertEquals(expected, (op == 5 ? addressable.getLeast() : addressable.getMost()).intValue());
+
+					// Exactly one handle holding that element is no longer valid
+					int removed = -1;
+
+					for (int j = 0; j < handles.size(); j++) {
+						if (!handles.get(j).isValid()) {
+							assertEquals(-1, removed);
+							removed = j;
+						}
+					}
+
+					assertEquals(expected, values.get(removed).intValue());
+					handles.remove(removed);
+					values.remove(removed);
+				}
+
+				assertEquals(values.size(), addressable.size());
+				assertEquals(true, addressable.isHeap());
+
+				for (int j = 0; j < handles.size(); j++) {
+					assertEquals(true, handles.get(j).isValid());
+					assertEquals(values.get(j), handles.get(j).getElement());
+				}
+			}
+
+			while (!handles.isEmpty()) {
+				addressable.getMost();
+				handles.removeIf(handle -> !handle.isValid());
+				assertEquals(handles.size(), addressable.size());
+				assertEquals(true, addressable.isHeap());
+			}
+
+			assertEquals(null, addressable.getLeast());
+		}
+	}
+
+	/**
+	 * Test of a QuantileTracker with a sliding window against a sorted list,
+	 * using the nearest rank ceil(q * n).
+	 */
+	@Test
+	public void testQuantilesWindow() {
+		System.out.println("quantilesWindow");
+
+		Random random = new Random(21);
+		// Equal quantiles share a rank
+		double[] quantiles = {0.1, 0.5, 0.5, 0.9, 1.0};
+		QuantileTracker<Integer> counted = new QuantileTracker<>(50, null, quantiles);
+		QuantileTracker<Integer> timed = new QuantileTracker<>(0, Comparator.reverseOrder(), quantiles);
+		List<Integer> countedSamples = new ArrayList<>();
+		List<Integer> timedSamples = new ArrayList<>();
+		List<Long> timestamps = new ArrayList<>();
+		long time = 0;
+
+		for (int i = 0; i < 3000; i++) {
+			int c = random.nextInt(100);
+			counted.add(c);
+			countedSamples.add(c);
+
+			if (countedSamples.size() > 50) {
+				countedSamples.remove(0);
+			}
+
+			if (random.nextInt(8) > 0) {
+				time += random.nextInt(3);
+				timed.add(c, time);
+				timedSamples.add(c);
+				timestamps.add(time);
+			} else {
+				// Sometimes evict every sample
+				long cutoff = random.nextBoolean() ? time + 1 : time - random.nextInt(40);
+				int evicted = 0;
+
+				while (!timestamps.isEmpty() && timestamps.get(0) < cutoff) {
+					timestamps.remove(0);
+					timedSamples.remove(0);
+					evicted++;
+				}
+
+				assertEquals(evicted, timed.evictBefore(cutoff));
+			}
+
+			assertQuantiles(quantiles, countedSamples, Comparator.naturalOrder(), counted);
+			assertQuantiles(quantiles, timedSamples, Comparator.reverseOrder(), timed);
+		}
+	}
+
+	/**
+	 * Checks the quantiles of a tracker against the nearest ranks of a
+	 * sorted copy of its samples
+	 *
+	 * @param quantiles the quantiles tracked
+	 * @param samples   the samples the tracker should have
+	 * @param order     the order of the samples
+	 * @param tracker   the tracker
+	 */
+	private static void assertQuantiles(double[] quantiles, List<Integer> samples, Comparator<Integer> order,
+										QuantileTracker<Integer> tracker) {
+		List<Integer> sorted = new ArrayList<>(samples);
+		sorted.sort(order);
+		int n = sorted.size();
+
+		assertEquals(n, tracker.size());
+		assertEquals(n == 0, tracker.isEmpty());
+
+		for (int i = 0; i < quantiles.length; i++) {
+			// Allow for the rounding error of q * n
+			int rank = (int) Math.max(1, Math.ceil(quantiles[i] * n - 1e-9));
+			assertEquals(n == 0 ? null : sorted.get(rank - 1), tracker.quantile(i));
+		}
+	}
+
+	/**
+	 * Test of an ExternalDEPQ whose encoder fails while spilling or merging,
+	 * which must not lose or duplicate any elements.
+	 */
+	@Test
+	public void testExternalFailure() throws IOException {
+		System.out.println("externalFailure");
+
+		Path directory = Files.createTempDirectory("depq");
+
+		try {
+			// Fail on each encode in turn, 16 spills of 8 elements are
+			// written before the 17th spill starts the first merge
+			for (int failAt = 1; failAt <= 210; failAt++) {
+				int[] encodes = {failAt};
+				List<Integer> added = new ArrayList<>();
+				int failures = 0;
+
+				try (ExternalDEPQ<Integer> external = new ExternalDEPQ<>(16, directory, (c, out) -> {
+					if (--encodes[0] == 0) {
+						throw new IOException("Failed to encode " + c);
+					}
+
+					out.writeInt(c);
+				}, DataInput::readInt)) {
+					for (int i = 0; i < 200; i++) {
+						int c = (i * 7919) % 200;
+
+						try {
+							external.add(c);
+							added.add(c);
+						} catch (UncheckedIOException e) {
+							failures++;
+						}
+
+						assertEquals(added.size(), external.size());
+					}
+
+					Collections.sort(added);
+					// Only the add whose spill or merge failed is lost
+					assertEquals(encodes[0] <= 0 ? 1 : 0, failures);
+
+					for (int c : added) {
+						assertEquals(c, external.getLeast().intValue());
+					}
+
+					assertEquals(true, external.isEmpty());
+				}
+			}
+		} finally {
+			Files.delete(directory);
+		}
+	}
+}
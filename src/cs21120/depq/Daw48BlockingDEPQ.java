@@ -0,0 +1,337 @@
+package cs21120.depq;
+
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A blocking Double-ended Priority Queue with an optional fixed capacity which
+ * stores its elements in a Daw48DEPQ interval heap. Every method holds a single
+ * lock while it uses the heap. Threads waiting to remove an element wait on a
+ * notEmpty condition and threads waiting to add an element wait on a notFull
+ * condition, so they are parked instead of spinning and are woken up by the
+ * thread which adds or removes an element. The time complexities are the same
+ * as Daw48DEPQ.
+ *
+ * @author Darren White
+ */
+public class Daw48BlockingDEPQ<E> implements BlockingDEPQ<E> {
+
+	/**
+	 * The interval heap which holds the elements,
+	 * only used while holding the lock
+	 */
+	private final Daw48DEPQ<E> depq;
+
+	/**
+	 * The maximum number of elements in the queue
+	 */
+	private final int capacity;
+
+	/**
+	 * Guards every access to the heap
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/**
+	 * Signalled when an element is added
+	 */
+	private final Condition notEmpty = lock.newCondition();
+
+	/**
+	 * Signalled when an element is removed
+	 */
+	private final Condition notFull = lock.newCondition();
+
+	/**
+	 * Creates a new blocking DEPQ with no capacity limit which
+	 * orders elements by their natural ordering
+	 */
+	public Daw48BlockingDEPQ() {
+		this(Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Creates a new blocking DEPQ with a fixed capacity which
+	 * orders elements by their natural ordering
+	 *
+	 * @param capacity the maximum number of elements in the queue
+	 */
+	public Daw48BlockingDEPQ(int capacity) {
+		this(capacity, new Daw48DEPQ<>());
+	}
+
+	/**
+	 * Creates a new blocking DEPQ with a fixed capacity which
+	 * orders elements using a comparator
+	 *
+	 * @param capacity   the maximum number of elements in the queue
+	 * @param comparator the comparator used to order the elements
+	 */
+	public Daw48BlockingDEPQ(int capacity, Comparator<? super E> comparator) {
+		this(capacity, new Daw48DEPQ<>(comparator));
+	}
+
+	/**
+	 * Creates a new blocking DEPQ around an empty interval heap
+	 *
+	 * @param capacity the maximum number of elements in the queue
+	 * @param depq     the heap to store the elements in
+	 */
+	private Daw48BlockingDEPQ(int capacity, Daw48DEPQ<E> depq) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+
+		this.capacity = capacity;
+		this.depq = depq;
+	}
+
+	/**
+	 * Adds an element to the DEPQ without waiting
+	 *
+	 * @param c the element to insert into the DEPQ
+	 * @throws IllegalStateException if the DEPQ is full
+	 */
+	@Override
+	public void add(E c) {
+		if (!offer(c)) {
+			throw new IllegalStateException("DEPQ is full");
+		}
+	}
+
+	@Override
+	public void put(E c) throws InterruptedException {
+		lock.lockInterruptibly();
+
+		try {
+			// Wait until there is space
+			while (depq.size() == capacity) {
+				notFull.await();
+			}
+
+			insert(c);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean offer(E c) {
+		lock.lock();
+
+		try {
+			if (depq.size() == capacity) {
+				return false;
+			}
+
+			insert(c);
+
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean offer(E c, long timeout, TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+
+		lock.lockInterruptibly();
+
+		try {
+			// Wait until there is space or we run out of time
+			while (depq.size() == capacity) {
+				if (nanos <= 0) {
+					return false;
+				}
+
+				nanos = notFull.awaitNanos(nanos);
+			}
+
+			insert(c);
+
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Adds an element to the heap and wakes up a thread waiting to remove
+	 * one, must be called while holding the lock
+	 *
+	 * @param c the element to insert into the DEPQ
+	 */
+	private void insert(E c) {
+		depq.add(c);
+		notEmpty.signal();
+	}
+
+	@Override
+	public E getLeast() {
+		lock.lock();
+
+		try {
+			return removed(depq.getLeast());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public E getMost() {
+		lock.lock();
+
+		try {
+			return removed(depq.getMost());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public E takeLeast() throws InterruptedException {
+		lock.lockInterruptibly();
+
+		try {
+			// Wait until there is an element
+			while (depq.isEmpty()) {
+				notEmpty.await();
+			}
+
+			return removed(depq.getLeast());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public E takeMost() throws InterruptedException {
+		lock.lockInterruptibly();
+
+		try {
+			// Wait until there is an element
+			while (depq.isEmpty()) {
+				notEmpty.await();
+			}
+
+			return removed(depq.getMost());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public E pollLeast(long timeout, TimeUnit unit) throws InterruptedException {
+		lock.lockInterruptibly();
+
+		try {
+			return awaitNotEmpty(unit.toNanos(timeout)) ? removed(depq.getLeast()) : null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public E pollMost(long timeout, TimeUnit unit) throws InterruptedException {
+		lock.lockInterruptibly();
+
+		try {
+			return awaitNotEmpty(unit.toNanos(timeout)) ? removed(depq.getMost()) : null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Waits up to a timeout for the heap to have an element,
+	 * must be called while holding the lock
+	 *
+	 * @param nanos how long to wait in nanoseconds
+	 * @return returns true if there is an element or false if the timeout passed
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	private boolean awaitNotEmpty(long nanos) throws InterruptedException {
+		while (depq.isEmpty()) {
+			if (nanos <= 0) {
+				return false;
+			}
+
+			nanos = notEmpty.awaitNanos(nanos);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Wakes up a thread waiting to add an element if one was
+	 * removed, must be called while holding the lock
+	 *
+	 * @param c the element removed from the heap, or null
+	 * @return returns the removed element
+	 */
+	private E removed(E c) {
+		if (c != null) {
+			notFull.signal();
+		}
+
+		return c;
+	}
+
+	@Override
+	public E inspectLeast() {
+		lock.lock();
+
+		try {
+			return depq.inspectLeast();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public E inspectMost() {
+		lock.lock();
+
+		try {
+			return depq.inspectMost();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean isEmpty() {
+		lock.lock();
+
+		try {
+			return depq.isEmpty();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int size() {
+		lock.lock();
+
+		try {
+			return depq.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int remainingCapacity() {
+		lock.lock();
+
+		try {
+			return capacity - depq.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+}
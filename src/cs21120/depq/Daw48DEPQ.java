@@ -1,8 +1,36 @@
 package cs21120.depq;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 /**
  * This implementation of a Double-ended Priority Queue uses an interval heap to
- * store and retrieve elements. Elements can be added using the add(Comparable)
+ * store and retrieve elements. Elements can be added using the add(Object)
  * method and can be inspected as well as inspected and removed. Further detail
  * for these methods can be found in the JavaDoc comments (as well as code
  * comments) below. The interval heap is similar to a min-max heap but
@@ -13,11 +41,18 @@ package cs21120.depq;
  * only one element in the interval then there are no boundary constraints. Each
  * child interval must be within the bounds of its parent interval. The root
  * interval will also contain the min and max elements due to how the heap is
- * structured. All of the elements are stored in nodes (each node holds two) and
- * all nodes are stored in an array (resized when needed). The finer technical
+ * structured. All of the elements are stored in one flat array (resized when
+ * needed) where node i occupies slot 2i (min) and slot 2i + 1 (max), so no
+ * node objects are allocated and both elements of an interval sit next to
+ * each other in memory. The finer technical
  * details are within the JavaDoc comments for each method. This implementation
  * was chosen due to it's fast nature of adding, inspecting and removing elements.
  * <p>
+ * Elements are ordered by their natural ordering, by a Comparator or by a long
+ * key. Besides the DEPQ methods the queue can be bounded, built or melded in
+ * bulk, drained, pruned, snapshotted, streamed and measured; each of these is
+ * described on its own methods.
+ * <p>
  * The time complexity for adding a new element is O(log n) because the greatest
  * factor in the algorithm (bubbleMaxUp or bubbleMinUp) only use a single while
  * loop to traverse the tree from the last leaf to the root and the height at
@@ -65,45 +100,198 @@ package cs21120.depq;
  *
  * @author Darren White
  */
-public class Daw48DEPQ<E extends Comparable<E>> implements DEPQ<E> {
+public class Daw48DEPQ<E> implements DEPQ<E> {
 
 	/**
-	 * Used to store all of the nodes in the queue
-	 * start with a minimum size of 10
+	 * The number of elements from which heapify() builds subtrees in parallel
 	 */
-	@SuppressWarnings("unchecked")
-	private Node<E>[] nodes = (Node<E>[]) new Node[10];
+	static final int PARALLEL_HEAPIFY_THRESHOLD = 1 << 20;
+
+	/**
+	 * How many subtrees to build in parallel for each thread in the pool,
+	 * more than one so that threads which finish early can take more
+	 */
+	private static final int HEAPIFY_TASKS_PER_THREAD = 8;
+
+	/**
+	 * Used to store all of the elements in the queue, node i is stored
+	 * in slot 2i (left/min) and slot 2i + 1 (right/max)
+	 * start with a minimum size of 20 (10 nodes) unless the queue is bounded
+	 */
+	private Object[] elements;
 
 	/**
-	 * Number of elements in the queue,
-	 * this is not the number of nodes
+	 * Number of elements in the queue, this will also
+	 * act as a pointer to the next free slot in the array
 	 */
 	private int numElements = 0;
 
 	/**
-	 * The number of nodes in the array, this will also
-	 * act as a pointer to the last node in the array
+	 * The comparator used to order the elements,
+	 * null if the natural ordering is used
+	 */
+	private final Comparator<? super E> comparator;
+
+	/**
+	 * Extracts the key used to order the elements,
+	 * null if the elements are not ordered by a key
+	 */
+	private final ToLongFunction<? super E> keyExtractor;
+
+	/**
+	 * The key of each element, stored in the same slot as the element,
+	 * null if the elements are not ordered by a key
+	 */
+	private long[] keys;
+
+	/**
+	 * The maximum number of elements in the queue,
+	 * 0 if the queue is not bounded
+	 */
+	private final int capacity;
+
+	/**
+	 * If a bounded queue keeps the largest elements (evicting the least)
+	 * instead of the smallest elements (evicting the most)
+	 */
+	private final boolean keepMost;
+
+	/**
+	 * The number of comparisons, swaps and levels moved in the current
+	 * operation, only counted when DEPQMetrics are enabled
 	 */
-	private int numNodes = 0;
+	private int metricComparisons, metricSwaps, metricDepth;
 
 	/**
 	 * Creates a new DEPQ using my interval heap implementation
+	 * which orders elements by their natural ordering
 	 */
 	public Daw48DEPQ() {
+		this(null, null, 0, false);
+	}
+
+	/**
+	 * Creates a new DEPQ using my interval heap implementation
+	 * which orders elements by their natural ordering and contains
+	 * all of the elements in a collection. The heap is built in O(n) time.
+	 *
+	 * @param c the elements to add to the DEPQ
+	 */
+	public Daw48DEPQ(Collection<? extends E> c) {
+		this();
+		addAll(c);
+	}
+
+	/**
+	 * Creates a new DEPQ using my interval heap implementation
+	 * which orders elements using a comparator
+	 *
+	 * @param comparator the comparator used to order the elements
+	 */
+	public Daw48DEPQ(Comparator<? super E> comparator) {
+		this(Objects.requireNonNull(comparator, "Comparator must not be null"), null, 0, false);
+	}
+
+	/**
+	 * Creates a new DEPQ using my interval heap implementation
+	 * which orders elements by a long key. The key of each element
+	 * is extracted once when it is added and stored alongside it.
+	 *
+	 * @param keyExtractor the function used to extract the key of an element
+	 */
+	public Daw48DEPQ(ToLongFunction<? super E> keyExtractor) {
+		this(null, Objects.requireNonNull(keyExtractor, "Key extractor must not be null"), 0, false);
+	}
+
+	/**
+	 * Creates a new bounded DEPQ using my interval heap implementation
+	 * which orders elements by their natural ordering, see offerBounded(Object)
+	 *
+	 * @param capacity the maximum number of elements in the queue
+	 * @param keepMost true to keep the largest elements or false to keep
+	 *                 the smallest elements once the queue is full
+	 */
+	public Daw48DEPQ(int capacity, boolean keepMost) {
+		this(null, null, requirePositive(capacity), keepMost);
+	}
+
+	/**
+	 * Creates a new bounded DEPQ using my interval heap implementation
+	 * which orders elements using a comparator, see offerBounded(Object)
+	 *
+	 * @param capacity   the maximum number of elements in the queue
+	 * @param keepMost   true to keep the largest elements or false to keep
+	 *                   the smallest elements once the queue is full
+	 * @param comparator the comparator used to order the elements
+	 */
+	public Daw48DEPQ(int capacity, boolean keepMost, Comparator<? super E> comparator) {
+		this(Objects.requireNonNull(comparator, "Comparator must not be null"), null,
+				requirePositive(capacity), keepMost);
+	}
+
+	/**
+	 * Creates a new bounded DEPQ using my interval heap implementation
+	 * which orders elements by a long key, see offerBounded(Object)
+	 *
+	 * @param capacity     the maximum number of elements in the queue
+	 * @param keepMost     true to keep the largest elements or false to keep
+	 *                     the smallest elements once the queue is full
+	 * @param keyExtractor the function used to extract the key of an element
+	 */
+	public Daw48DEPQ(int capacity, boolean keepMost, ToLongFunction<? super E> keyExtractor) {
+		this(null, Objects.requireNonNull(keyExtractor, "Key extractor must not be null"),
+				requirePositive(capacity), keepMost);
+	}
+
+	/**
+	 * Creates a new DEPQ, all of the other constructors use this one
+	 *
+	 * @param comparator   the comparator used to order the elements or null
+	 * @param keyExtractor the function used to extract the key of an element or null
+	 * @param capacity     the maximum number of elements or 0 if not bounded
+	 * @param keepMost     if a bounded queue keeps the largest elements
+	 */
+	private Daw48DEPQ(Comparator<? super E> comparator, ToLongFunction<? super E> keyExtractor,
+					  int capacity, boolean keepMost) {
+		this.comparator = comparator;
+		this.keyExtractor = keyExtractor;
+		this.capacity = capacity;
+		this.keepMost = keepMost;
+
+		// A bounded queue never needs a larger array
+		elements = new Object[capacity > 0 ? capacity : 20];
+
+		if (keyExtractor != null) {
+			keys = new long[elements.length];
+		}
+	}
+
+	/**
+	 * Checks the capacity of a bounded queue is valid
+	 *
+	 * @param capacity the maximum number of elements in the queue
+	 * @return returns the capacity
+	 */
+	private static int requirePositive(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+
+		return capacity;
 	}
 
 	/**
-	 * Adds a new Comparable element into the DEPQ in the correct position.
-	 * If the last node only has one element in it then the new element is
-	 * inserted correctly into that node otherwise a new node is created
-	 * with the new element and the new node is inserted into the end of the
-	 * array, expanding the size of the array when needed. If there is 2 or less
-	 * elements then we do not need to resort the heap otherwise the newly
-	 * inserted element needs to be moved to its correct position in the heap.
-	 * we do this by bubbling up the element using bubbleMinUp() or
-	 * bubbleMaxUp() depending which element it was inserted as (left = min,
-	 * right = max). No null elements can be added and will throw a
-	 * NullPointerException.
+	 * Adds a new element into the DEPQ in the correct position.
+	 * The element is placed in the next free slot of the array, expanding
+	 * the size of the array when needed. If the slot is the right half of the
+	 * last node then the two elements of that node are ordered so the left
+	 * element is the smallest. If there is 2 or less elements then we do not
+	 * need to resort the heap otherwise the newly inserted element needs to be
+	 * moved to its correct position in the heap. we do this by bubbling up the
+	 * element using bubbleMinUp(int) or bubbleMaxUp(int) depending which element it
+	 * was inserted as (left = min, right = max). No null elements can be added
+	 * and will throw a NullPointerException. A bounded queue which is full
+	 * will throw an IllegalStateException, use offerBounded(Object) instead.
 	 *
 	 * @param c the element to insert into the DEPQ
 	 */
@@ -115,52 +303,37 @@ public class Daw48DEPQ<E extends Comparable<E>> implements DEPQ<E> {
 			throw new NullPointerException("Null values not allowed in DEPQ");
 		}
 
-		// The node to add to the array
-		Node<E> n;
-		// Two different add cases for odd and even number
-		// of elements (not nodes!)
-		// Increment numElements to keep track of number of elements
-		if (numElements % 2 == 0) {
-			// Number of elements is even, so only have a left element
-			n = new Node<>(c, null);
-
-			// If the array is full we need to make it larger
-			if (nodes.length == numNodes) {
-				// Create a new array
-				// The minimum length is 10
-				// Otherwise it will expand by 1.5
-				@SuppressWarnings("unchecked")
-				Node<E>[] newNodes = (Node<E>[]) new Node[numNodes + (numNodes >> 1)];
-				// Copy the existing array into the new array
-				System.arraycopy(nodes, 0, newNodes, 0, numNodes);
-				// Set the full array as the larger array
-				nodes = newNodes;
-			}
-
-			// Insert node at the end of the array
-			// We added another node so increase number of nodes
-			nodes[numNodes++] = n;
-		} else {
-			// Number of elements is odd
-			// Get the last element in the array
-			// and put the element in left/right
-			n = nodes[numNodes - 1];
-
-			// Note here: n.right == null
-			// The left element is larger than c
-			if (n.left.compareTo(c) > 0) {
-				// Move the left element to the right
-				// and put c as the left element
-				n.right = n.left;
-				n.left = c;
-			} else {
-				// The left element is smaller than c
-				n.right = c;
-			}
+		long start = DEPQMetrics.ENABLED ? startMetrics() : 0L;
+		insert(c);
+
+		if (DEPQMetrics.ENABLED) {
+			record(DEPQMetrics.Operation.ADD, start);
+		}
+	}
+
+	/**
+	 * Adds a non-null element to the DEPQ without recording it,
+	 * see add(Object)
+	 *
+	 * @param c the element to insert into the DEPQ
+	 */
+	private void insert(E c) {
+		// If the array is full we need to make it larger
+		if (elements.length == numElements) {
+			grow();
 		}
 
-		// We added a new element
-		numElements++;
+		// The slot the new element goes into
+		int index = numElements++;
+		set(index, c);
+
+		// An odd slot is the right element of the last node
+		// so make sure the left element is the smallest
+		if ((index & 1) == 1 && compare(index - 1, index) > 0) {
+			swap(index - 1, index);
+			// c is now the left element
+			index--;
+		}
 
 		// The heap is fine if there are only two elements
 		// Otherwise we need to move the element to its correct position
@@ -168,376 +341,979 @@ public class Daw48DEPQ<E extends Comparable<E>> implements DEPQ<E> {
 			return;
 		}
 
-		// Get the parent of the node
-		// Note: last element is at numNodes - 1
-		// so its parent is at (numNodes - 1 - 1) / 2
-		Node<E> parent = nodes[(numNodes - 2) / 2];
-		if (parent.left.compareTo(c) > 0) {
+		// Get the parent of the last node
+		int parent = ((index >> 1) - 1) >> 1;
+		if (compare(parent << 1, index) > 0) {
 			// The parent left element is larger than c
 			// so we have to move c up to the correct position
-			bubbleMinUp();
-		} else if (parent.right.compareTo(c) < 0) {
+			bubbleMinUp((numElements - 1) & ~1);
+		} else if (compare((parent << 1) + 1, index) < 0) {
 			// The parent right element is smaller than c
 			// so we have to move c up to the correct position
-			bubbleMaxUp();
+			bubbleMaxUp(numElements - 1);
 		}
 
 		// The element should stay here otherwise
 	}
 
 	/**
-	 * Bubbles the max element up the heap until it is in the correct
-	 * position. This will compare the last nodes max (right) element with
-	 * its parent max (right) element and will swap them if the parent node
-	 * max element is smaller than the last node max element. This is then
-	 * repeated on the next parent node up the heap until the node is in the
-	 * correct position where its parent max element is larger than its max
-	 * element and its children's max elements are smaller than it.
+	 * Offers an element to a bounded DEPQ which keeps the best elements it has
+	 * been offered. If the queue is not full the element is added as normal.
+	 * Otherwise the element is compared with the worst element in the queue,
+	 * which is the least element if the queue keeps the most elements or the
+	 * most element if it keeps the least elements. If the new element is
+	 * better it takes the place of the worst element in the root node and is
+	 * moved down the heap with a single sift, and the worst element is
+	 * returned. If it is not better then it is returned and the queue is not
+	 * changed. This is O(1) when rejected and O(log n) otherwise.
+	 *
+	 * @param c the element to offer to the DEPQ
+	 * @return returns null if the element was added without evicting anything,
+	 * the evicted element if it was replaced or c if it was rejected
 	 */
-	private void bubbleMaxUp() {
-		// The current index of node to shift up, start with the last element
-		int index = numNodes - 1;
-		// Its parent index
-		int parentIndex;
-		// The node at the index and its parent
-		Node<E> n, parent;
-		// Used for the swap (the right element maybe null in odd numElements cases)
-		E c;
-
-		// Keep looping while we have a valid parent
-		// when we reach the root we should stop
-		while ((parentIndex = (index - 1) / 2) >= 0) {
-			// Retrieve the node and its parent
-			n = nodes[index];
-			parent = nodes[parentIndex];
-
-			// Get the right element, but if its null get the left
-			if (n.right == null) {
-				c = n.left;
-			} else {
-				c = n.right;
-			}
+	public E offerBounded(E c) {
+		if (capacity == 0) {
+			throw new IllegalStateException("DEPQ is not bounded");
+		}
 
-			// If the parent right element is smaller than the node right element
-			// then they need to be swapped
-			if (parent.right.compareTo(c) < 0) {
-				// Swap the parent and node right elements (or left if right was null)
-				E tmp = parent.right;
+		// Don't add a null value
+		// throw an npe instead
+		if (c == null) {
+			throw new NullPointerException("Null values not allowed in DEPQ");
+		}
 
-				parent.right = c;
+		long start = DEPQMetrics.ENABLED ? startMetrics() : 0L;
+		E result;
 
-				if (n.right == null) {
-					n.left = tmp;
-				} else {
-					n.right = tmp;
-				}
+		if (numElements < capacity) {
+			// There is still space so nothing is evicted
+			insert(c);
+			result = null;
+		} else if (keepMost) {
+			// Replace the least element if c is larger
+			// Only extract the key once
+			long key = keyOf(c);
+			result = compareElement(c, key, 0) > 0 ? replaceMin(c, key) : c;
+		} else {
+			// Replace the most element if c is smaller
+			long key = keyOf(c);
+			result = compareElement(c, key, numElements == 1 ? 0 : 1) < 0 ? replaceMax(c, key) : c;
+		}
 
-				// Set the node index as its parent
-				// so we shift up the next level
-				index = parentIndex;
-			} else {
-				// Otherwise the nodes are in correct positions, so we stop
-				break;
-			}
+		if (DEPQMetrics.ENABLED) {
+			record(DEPQMetrics.Operation.OFFER, start);
 		}
+
+		return result;
 	}
 
 	/**
-	 * Bubbles the min element up the heap until it is in the correct
-	 * position. This will compare the last nodes min (left) element with
-	 * its parent min (left) element and will swap them if the parent node
-	 * min element is larger than the last node min element. This is then
-	 * repeated on the next parent node up the heap until the node is in the
-	 * correct position where its parent min element is smaller than its min
-	 * element and its children's min elements are larger than it.
+	 * Removes the least element and adds a new element, the same as
+	 * getLeast() followed by add(Object) but with a single sift. The new
+	 * element takes the place of the least element in the root node and is
+	 * moved down the heap with replaceMin, so the last node is not moved.
+	 * If the queue is empty the element is just added.
+	 *
+	 * @param c the element to add
+	 * @return returns the least element before c was added, or null if the
+	 * queue was empty
 	 */
-	private void bubbleMinUp() {
-		// The current index of node to shift up, start with the last element
-		int index = numNodes - 1;
-		// Its parent index
-		int parentIndex;
-		// The node at the index and its parent
-		Node<E> n, parent;
+	public E replaceLeast(E c) {
+		return replace(c, true, false);
+	}
 
-		// Keep looping while we have a valid parent
-		// when we reach the root we should stop
-		while ((parentIndex = (index - 1) / 2) >= 0) {
-			// Retrieve the node and its parent
-			n = nodes[index];
-			parent = nodes[parentIndex];
+	/**
+	 * Removes the most element and adds a new element, the same as
+	 * getMost() followed by add(Object) but with a single sift,
+	 * see replaceLeast(Object)
+	 *
+	 * @param c the element to add
+	 * @return returns the most element before c was added, or null if the
+	 * queue was empty
+	 */
+	public E replaceMost(E c) {
+		return replace(c, false, false);
+	}
 
-			// If the parent left element is larger than the node left element
-			// then they need to be swapped
-			if (parent.left.compareTo(n.left) > 0) {
-				// Swap the parent and node left elements
-				E tmp = parent.left;
+	/**
+	 * Adds a new element and removes the least element, the same as
+	 * add(Object) followed by getLeast() but with at most one sift. If c is
+	 * not larger than the least element it would be removed straight away,
+	 * so it is returned without changing the queue. Otherwise it replaces
+	 * the least element, see replaceLeast(Object).
+	 *
+	 * @param c the element to add
+	 * @return returns the least element after c was added, which may be c
+	 */
+	public E addThenGetLeast(E c) {
+		return replace(c, true, true);
+	}
 
-				parent.left = n.left;
-				n.left = tmp;
+	/**
+	 * Adds a new element and removes the most element, the same as
+	 * add(Object) followed by getMost() but with at most one sift,
+	 * see addThenGetLeast(Object)
+	 *
+	 * @param c the element to add
+	 * @return returns the most element after c was added, which may be c
+	 */
+	public E addThenGetMost(E c) {
+		return replace(c, false, true);
+	}
 
-				// Set the node index as its parent
-				// so we shift up the next level
-				index = parentIndex;
+	/**
+	 * Replaces the least or most element of the queue with an element
+	 *
+	 * @param c        the element to add
+	 * @param least    true to replace the least element, false for the most
+	 * @param addFirst true to return c if it would be the element removed
+	 * @return returns the removed element
+	 */
+	private E replace(E c, boolean least, boolean addFirst) {
+		// Don't add a null value
+		// throw an npe instead
+		if (c == null) {
+			throw new NullPointerException("Null values not allowed in DEPQ");
+		}
+
+		long start = DEPQMetrics.ENABLED ? startMetrics() : 0L;
+		E result;
+
+		if (numElements == 0) {
+			// There is nothing to remove, and c would be
+			// removed straight away if it was added first
+			if (addFirst) {
+				result = c;
 			} else {
-				// Otherwise the nodes are in correct positions, so we stop
-				break;
+				insert(c);
+				result = null;
 			}
+		} else if (least) {
+			// Only extract the key once
+			long key = keyOf(c);
+			// c would be the least element itself
+			result = addFirst && compareElement(c, key, 0) <= 0 ? c : replaceMin(c, key);
+		} else {
+			long key = keyOf(c);
+			// c would be the most element itself
+			result = addFirst && compareElement(c, key, numElements == 1 ? 0 : 1) >= 0 ? c : replaceMax(c, key);
+		}
+
+		if (DEPQMetrics.ENABLED) {
+			record(DEPQMetrics.Operation.REPLACE, start);
 		}
+
+		return result;
 	}
 
 	/**
-	 * Gets the smallest element in the DEPQ and removes it from the DEPQ. The
-	 * smallest element is retrieved using inspectLeast(); this is the element
-	 * which will be returned after removing and ensuring that the heap is
-	 * correct and if not swapping elements where needed. If there is only
-	 * one element in the queue then it is removed (and its node) and returned.
-	 * Otherwise, the last nodes min (left) element is moved into the root node
-	 * and the last node left element is removed and replaced with the max (right)
-	 * element if there is one. Now, starting at the root node, we compare both
-	 * children to get the child with the smallest min (left) element. Next we
-	 * compare this child's left element with the nodes left element and if
-	 * the child left element is smaller then we swap them otherwise the element
-	 * is in the correct position and we can stop. We continue this while the
-	 * current node has a child or until the node is in the correct position,
-	 * where the child node min (left) element is larger than the nodes min
-	 * (left) element.
+	 * Replaces the min (left) element of the root node with a new element
+	 * and moves it down the heap. If the new element is larger than the root
+	 * max (right) element they are swapped first, then the root min is moved
+	 * down using siftMinDown(), so only one path from the root is sifted.
 	 *
-	 * @return returns the smallest element in the DEPQ
+	 * @param c   the new element
+	 * @param key the key of the new element
+	 * @return returns the replaced element
 	 */
-	@Override
-	public E getLeast() {
-		// Get the least element - may be null if queue is empty
-		E min = inspectLeast();
+	private E replaceMin(E c, long key) {
+		E min = elementAt(0);
+		set(0, c, key);
 
-		// If it is the only element, remove the node and return it
-		// Remember to decrease number of elements as well
+		// The new element may be the new most element
+		if (numElements > 1 && compare(0, 1) > 0) {
+			swap(0, 1);
+		}
+
+		siftMinDown(0);
+
+		return min;
+	}
+
+	/**
+	 * Replaces the max (right) element of the root node with a new element
+	 * and moves it down the heap. If the new element is smaller than the root
+	 * min (left) element they are swapped first, then the root max is moved
+	 * down using siftMaxDown(), so only one path from the root is sifted.
+	 *
+	 * @param c   the new element
+	 * @param key the key of the new element
+	 * @return returns the replaced element
+	 */
+	private E replaceMax(E c, long key) {
+		// A single element is both the min and the max
 		if (numElements == 1) {
-			// Decrease how many nodes are in the array
-			nodes[numNodes--] = null;
-			numElements--;
+			E max = elementAt(0);
+			set(0, c, key);
 
-			// Return the only element in the array
-			return min;
+			return max;
 		}
 
-		// Get the last node
-		Node<E> last = nodes[numNodes - 1];
-
-		// Put the last nodes left element in the root left element
-		nodes[0].left = last.left;
+		E max = elementAt(1);
+		set(1, c, key);
 
-		// If the last node has no right element, remove it
-		// as we just removed the left element so it's an empty interval
-		if (last.right == null) {
-			// Remove last node, it is empty
-			nodes[numNodes - 1] = null;
-			// Decrease the number of nodes as we just remove a node
-			numNodes--;
-		} else {
-			// Move the right element to the left
-			last.left = last.right;
-			last.right = null;
+		// The new element may be the new least element
+		if (compare(0, 1) > 0) {
+			swap(0, 1);
 		}
 
-		// Decrease number of elements as we just removed one
-		numElements--;
+		siftMaxDown(1);
 
-		// The node index, start at the root
-		int index = 0;
-		// To get node children use
-		// (i * 2) + 1 (for left or + 2 for right)
-		int childIndex;
-		// The current node and it's child
-		Node<E> n, child;
+		return max;
+	}
 
-		// Keep looping while we have a child, moving the left element down
-		// the heap until it's in the correct position
-		// Note: we are storing the childIndex as the left child (as it's + 1)
-		while ((childIndex = index * 2 + 1) < numNodes) {
-			// Get the node and its child
-			n = nodes[index];
-			child = nodes[childIndex];
-
-			// If we have a right child - the childIndex is the left child
-			// so adding + 1 will get the right child index
-			if (childIndex + 1 < numNodes) {
-				// Compare the children to find the smallest left element
-				if (child.left.compareTo(nodes[childIndex + 1].left) > 0) {
-					// The right child has a smaller left element so we
-					// use the right child
-					// Remember to increase the childIndex as we are using the
-					// right child
-					child = nodes[++childIndex];
-				}
+	/**
+	 * Adds all of the elements in a collection to the DEPQ. If the collection
+	 * is at least half the size of the DEPQ then the elements are appended to
+	 * the end of the array and the heap is rebuilt with heapify() which is
+	 * O(n + m), otherwise each element is added with add(Object) which is
+	 * O(m log n). If the collection contains a null element then the elements
+	 * before it are added and a NullPointerException is thrown. A bounded
+	 * queue throws an IllegalStateException if there is not enough space.
+	 *
+	 * @param c the elements to add to the DEPQ
+	 */
+	public void addAll(Collection<? extends E> c) {
+		// Only rebuild when it is cheaper than adding
+		// each element on its own
+		if (c.size() < numElements >> 1) {
+			for (E e : c) {
+				add(e);
 			}
 
-			// The node left element is larger than the child left element
-			// so they need to be swapped
-			if (n.left.compareTo(child.left) > 0) {
-
-				// Otherwise swap the node and child left elements
-				E tmp = child.left;
-				child.left = n.left;
-				n.left = tmp;
+			return;
+		}
 
-				// Ensure that the left element is the smallest
-				// otherwise swap left & right
-				if (child.right != null && child.left.compareTo(child.right) > 0) {
-					tmp = child.left;
-					child.left = child.right;
-					child.right = tmp;
-				}
+		// Make room for all of the elements at once
+		ensureCapacity(numElements + c.size());
 
-				// Continue down the heap
-				index = childIndex;
-			} else {
-				// Otherwise the nodes are in correct positions, so we stop
-				break;
+		try {
+			for (E e : c) {
+				append(e);
 			}
+		} finally {
+			// Rebuild with whatever was appended,
+			// even if there was a null element
+			heapify();
 		}
+	}
 
-		// Return the smallest element removed from the root node
-		return min;
+	/**
+	 * Adds all of the elements in an array to the DEPQ, the same as
+	 * addAll(Collection).
+	 *
+	 * @param c the elements to add to the DEPQ
+	 */
+	public void addAll(E[] c) {
+		// The list is only a view of the array so nothing is copied
+		addAll(Arrays.asList(c));
 	}
 
 	/**
-	 * Gets the largest element in the DEPQ and removes it from the DEPQ. The
-	 * largest element is retrieved using inspectMost(); this is the element
-	 * which will be returned after removing and ensuring that the heap is
-	 * correct and if not swapping elements where needed. If there is only
-	 * one element in the queue then it is removed (and its node) and returned.
-	 * Otherwise, the last nodes min (left) element is moved into the root node
-	 * and the last node left element is removed and replaced with the max (right)
-	 * element if there is one. Now, starting at the root node, we compare both
-	 * children to get the child with the smallest min (left) element. Next we
-	 * compare this child's left element with the nodes left element and if
-	 * the child left element is smaller then we swap them otherwise the element
-	 * is in the correct position and we can stop. We continue this while the
-	 * current node has a child or until the node is in the correct position,
-	 * where the child node min (left) element is larger than the nodes min
-	 * (left) element.
+	 * Moves all of the elements of another DEPQ into this DEPQ, leaving the
+	 * other DEPQ empty. If the other DEPQ is a Daw48DEPQ its array is used
+	 * directly:
+	 * <ul>
+	 * <li>if this DEPQ is empty, unbounded and orders its elements the same
+	 * way, it simply takes over the other array which is already a valid
+	 * interval heap, which is O(1). The array of a bounded queue with a
+	 * capacity of 1 is copied instead, so that it can still grow.</li>
+	 * <li>if the other DEPQ is at least half the size of this DEPQ, its
+	 * array is copied onto the end of this array and the heap is rebuilt with
+	 * heapify(), which is O(n + m)</li>
+	 * <li>otherwise each element is added with add(Object), which is
+	 * O(m log n)</li>
+	 * </ul>
+	 * The keys of a Daw48DEPQ using the same key extractor are copied rather
+	 * than extracted again. Any other kind of DEPQ can only be emptied one
+	 * element at a time with getLeast() so its elements are added with
+	 * addAll(Collection).
 	 *
-	 * @return returns the largest element in the DEPQ
+	 * @param other the DEPQ whose elements are moved into this DEPQ
+	 * @throws IllegalArgumentException if other is this DEPQ
+	 * @throws IllegalStateException    if this DEPQ is bounded and there is not
+	 *                                  enough space, nothing is moved
 	 */
-	@Override
-	public E getMost() {
-		// Get the most element - may be null if queue is empty
-		E max = inspectMost();
+	@SuppressWarnings("unchecked")
+	public void meld(DEPQ<E> other) {
+		if (other == this) {
+			throw new IllegalArgumentException("Cannot meld a DEPQ with itself");
+		}
 
-		if (max == null) {
-			return null;
+		// Check there is enough space before anything is moved
+		if (capacity > 0 && other.size() > capacity - numElements) {
+			throw new IllegalStateException("DEPQ is full");
 		}
 
-		// If it is the only element, remove the node and return it
-		// Remember to decrease number of elements as well
-		if (numElements == 1) {
-			// Set the node as null and decrease the number of nodes
-			nodes[numNodes--] = null;
-			numElements--;
+		if (!(other instanceof Daw48DEPQ)) {
+			List<E> drained = new ArrayList<>(other.size());
 
-			return max;
-		}
+			while (!other.isEmpty()) {
+				drained.add(other.getLeast());
+			}
 
-		// Get the last node
-		Node<E> last = nodes[numNodes - 1];
-		// If the last node has a right element that put that
-		// in the root node as the right element otherwise
-		// the last node only has one element which is the left
-		// so move that into the root node instead
-		nodes[0].right = last.right != null ? last.right : last.left;
-
-		// If the last node has no right element, remove it
-		// as we just removed the left element so it's an empty interval
-		if (last.right == null) {
-			// Remove last node, it is empty
-			nodes[numNodes - 1] = null;
-			// and decrease the number of nodes
-			numNodes--;
-		} else {
-			// We just moved the right element to the root
-			// so remove it from the last node
-			last.right = null;
+			addAll(drained);
+			return;
 		}
 
-		// Decrease number of elements as we just removed one
-		numElements--;
+		Daw48DEPQ<E> o = (Daw48DEPQ<E>) other;
+		int m = o.numElements;
+		boolean sameKeys = keyExtractor != null && keyExtractor == o.keyExtractor;
 
-		// The node index, start at the root
-		int index = 0;
-		// To get node children use
-		// (i * 2) + 1 (for left or + 2 for right)
-		int childIndex;
-		// The current node and it's child
-		Node<E> n, child;
+		if (numElements == 0 && capacity == 0 && o.elements.length >= 2
+				&& comparator == o.comparator && keyExtractor == o.keyExtractor) {
+			// Take over the other heap as it is, unless it is
+			// the tiny array of a bounded queue
+			elements = o.elements;
+			keys = o.keys;
+			numElements = m;
 
-		// Keep looping while we have a child, moving the left element down
-		// the heap until it's in the correct position
-		// Note: we are storing the childIndex as the left child (as it's + 1)
-		while ((childIndex = index * 2 + 1) < numNodes) {
-			// Get the node and its child
-			n = nodes[index];
-			child = nodes[childIndex];
-
-			// If we have a right child - the childIndex is the left child
-			// so adding + 1 will get the right child index
-			if (childIndex + 1 < numNodes && nodes[childIndex + 1].right != null) {
-				// Compare the children to find the largest right element
-				if (child.right.compareTo(nodes[childIndex + 1].right) < 0) {
-					// The right child has a larger right element so we
-					// use the right child
-					// Remember to increase the childIndex as we are using the
-					// right child
-					child = nodes[++childIndex];
-				}
-			}
+			// Give the other queue a new array
+			o.elements = new Object[o.capacity > 0 ? o.capacity : 20];
+			o.keys = o.keyExtractor != null ? new long[o.elements.length] : null;
+			o.numElements = 0;
+			return;
+		}
 
-			// If the child has a right element and the node right element is
-			// smaller than the child right element then they need to be swapped
-			if (child.right != null && n.right.compareTo(child.right) < 0) {
-				// Otherwise swap the node and child right elements
-				E tmp = child.right;
-				child.right = n.right;
-				n.right = tmp;
+		if (m < numElements >> 1) {
+			// Only a few elements so add each one
+			for (int i = 0; i < m; i++) {
+				add(o.elementAt(i));
+			}
+		} else {
+			// Copy the other array onto the end and rebuild
+			ensureCapacity(numElements + m);
+			System.arraycopy(o.elements, 0, elements, numElements, m);
 
-				// Ensure that the right element is the largest
-				// otherwise swap left & right
-				if (child.right != null && child.left.compareTo(child.right) > 0) {
-					tmp = child.right;
-					child.right = child.left;
-					child.left = tmp;
+			if (sameKeys) {
+				System.arraycopy(o.keys, 0, keys, numElements, m);
+			} else if (keys != null) {
+				for (int i = numElements; i < numElements + m; i++) {
+					keys[i] = keyExtractor.applyAsLong(elementAt(i));
 				}
-
-				// Continue down the heap
-				index = childIndex;
-			} else {
-				// Otherwise the nodes are in correct positions, so we stop
-				break;
 			}
+
+			numElements += m;
+			heapify();
 		}
 
-		// Return the largest element removed from the root node
-		return max;
+		// Empty the other queue
+		Arrays.fill(o.elements, 0, m, null);
+		o.numElements = 0;
 	}
 
 	/**
-	 * Gets the smallest element in the DEPQ but does not remove it from
-	 * the DEPQ. This will simply access the nodes array and retrieve the min
-	 * element from the root node. Null may be returned if the queue is empty.
+	 * Appends an element to the end of the array without moving it to
+	 * its correct position, heapify() must be called afterwards.
 	 *
-	 * @return returns the smallest element in the DEPQ
+	 * @param c the element to append
 	 */
-	@Override
-	public E inspectLeast() {
-		// If there are elements in the queue
-		// then return the least value is the
-		// left element of the root node otherwise
-		// return null
-		return numElements > 0 ? nodes[0].left : null;
-	}
-
-	/**
+	private void append(E c) {
+		// Don't add a null value
+		// throw an npe instead
+		if (c == null) {
+			throw new NullPointerException("Null values not allowed in DEPQ");
+		}
+
+		// The collection may have grown since we
+		// made room for it
+		if (elements.length == numElements) {
+			grow();
+		}
+
+		set(numElements++, c);
+	}
+
+	/**
+	 * Rebuilds the heap from the bottom up. First the two elements of every
+	 * node are put in order, which makes every leaf node a valid interval
+	 * heap. Then starting at the last node with children and moving towards
+	 * the root, the min and max elements of each node are moved down using
+	 * siftMinDown() and siftMaxDown(). The children of a node are always
+	 * valid interval heaps when it is sifted, so the whole array is a valid
+	 * interval heap at the end. Most nodes are near the bottom of the heap
+	 * and only move a short distance so this is O(n).
+	 * <p>
+	 * Subtrees with different roots share no slots, so above
+	 * PARALLEL_HEAPIFY_THRESHOLD elements the heap is built by a HeapifyTask
+	 * which builds the subtrees below a split level at the same time in the
+	 * common ForkJoinPool, and then sifts the few nodes above them as each
+	 * pair of subtrees is finished. The comparator or compareTo must be safe
+	 * to call from many threads, as they almost always are. Metrics count
+	 * comparisons in plain fields, so the build is not split while they
+	 * are enabled.
+	 */
+	private void heapify() {
+		long start = DEPQMetrics.ENABLED ? startMetrics() : 0L;
+		int threads = ForkJoinPool.getCommonPoolParallelism();
+
+		if (numElements >= PARALLEL_HEAPIFY_THRESHOLD && threads > 1 && !DEPQMetrics.ENABLED) {
+			// The depth at which there are enough subtrees for every thread,
+			// the root is at depth 0 and there are 2^d nodes at depth d
+			int splitDepth = 32 - Integer.numberOfLeadingZeros(threads * HEAPIFY_TASKS_PER_THREAD - 1);
+
+			ForkJoinPool.commonPool().invoke(new HeapifyTask(0, 0, splitDepth));
+		} else {
+			// Order the left and right elements of every node
+			for (int i = 0; i + 1 < numElements; i += 2) {
+				if (compare(i, i + 1) > 0) {
+					swap(i, i + 1);
+				}
+			}
+
+			// Start at the last node i which has a child, its left
+			// child's left element is at slot 4i + 2
+			for (int i = (numElements - 3) >> 2 << 1; i >= 0; i -= 2) {
+				siftMinDown(i);
+				siftMaxDown(i + 1);
+			}
+		}
+
+		if (DEPQMetrics.ENABLED) {
+			record(DEPQMetrics.Operation.HEAPIFY, start);
+		}
+	}
+
+	/**
+	 * Builds the subtree below a node, one level at a time from the bottom,
+	 * in the same way as heapify() builds the whole heap
+	 *
+	 * @param node the root node of the subtree
+	 */
+	private void heapifySubtree(int node) {
+		int numNodes = (numElements + 1) >> 1;
+		// The nodes of the subtree at depth d below the node
+		// are the 2^d nodes starting at ((node + 1) << d) - 1
+		int depth = 0;
+
+		while ((((long) node + 1) << (depth + 1)) - 1 < numNodes) {
+			depth++;
+		}
+
+		for (int d = depth; d >= 0; d--) {
+			int first = (int) ((((long) node + 1) << d) - 1);
+			int end = (int) Math.min(first + (1L << d), numNodes);
+
+			for (int i = end - 1; i >= first; i--) {
+				heapifyNode(i);
+			}
+		}
+	}
+
+	/**
+	 * Orders the two elements of a node and sifts them down,
+	 * its children must already be valid interval heaps
+	 *
+	 * @param node the node
+	 */
+	private void heapifyNode(int node) {
+		int index = node << 1;
+
+		if (index + 1 < numElements && compare(index, index + 1) > 0) {
+			swap(index, index + 1);
+		}
+
+		siftMinDown(index);
+		siftMaxDown(index + 1);
+	}
+
+	/**
+	 * Makes sure the array can hold a number of elements, expanding it
+	 * by at least 1.5 times its current length if it cannot.
+	 *
+	 * @param minCapacity the number of elements the array must hold
+	 */
+	private void ensureCapacity(int minCapacity) {
+		if (elements.length < minCapacity) {
+			// Nothing is added if a bounded queue is too small
+			if (capacity > 0) {
+				throw new IllegalStateException("DEPQ is full");
+			}
+
+			resize(Math.max(minCapacity, elements.length + (elements.length >> 1)));
+		}
+	}
+
+	/**
+	 * Expands the array by 1.5 times its current length, and by at least
+	 * 2 slots, copying the existing elements into the new array.
+	 */
+	private void grow() {
+		// The array of a bounded queue is never expanded
+		if (capacity > 0) {
+			throw new IllegalStateException("DEPQ is full");
+		}
+
+		resize(numElements + Math.max(numElements >> 1, 2));
+	}
+
+	/**
+	 * Replaces the array with one of a new length, copying the
+	 * existing elements into the new array.
+	 *
+	 * @param newLength the length of the new array
+	 */
+	private void resize(int newLength) {
+		int oldLength = elements.length;
+
+		// Create a new array and copy the existing array into it
+		Object[] newElements = new Object[newLength];
+		System.arraycopy(elements, 0, newElements, 0, numElements);
+		// Set the full array as the larger array
+		elements = newElements;
+
+		// The keys array is always the same length as the elements
+		if (keys != null) {
+			long[] newKeys = new long[newLength];
+			System.arraycopy(keys, 0, newKeys, 0, numElements);
+			keys = newKeys;
+		}
+
+		if (DEPQMetrics.ENABLED) {
+			// Assume 8 byte references, plus 8 bytes for each key
+			DEPQMetrics.resized(oldLength, newLength, (long) numElements * (keys != null ? 16 : 8));
+		}
+	}
+
+	/**
+	 * Bubbles a max element up the heap until it is in the correct
+	 * position. This will compare the nodes max (right) element with
+	 * its parent max (right) element and will swap them if the parent node
+	 * max element is smaller than the nodes max element. This is then
+	 * repeated on the next parent node up the heap until the node is in the
+	 * correct position where its parent max element is larger than its max
+	 * element and its children's max elements are smaller than it.
+	 *
+	 * @param index the slot of the element, after adding this is the right
+	 *              element of the last node (or the left if the last node
+	 *              only has one element)
+	 */
+	private void bubbleMaxUp(int index) {
+		// Its parent slot
+		int parentIndex;
+
+		// Keep looping while we have a valid parent
+		// when we reach the root we should stop
+		while (index > 1) {
+			// The parents right element
+			parentIndex = parentMin(index) + 1;
+
+			// If the parent right element is smaller than the node right element
+			// then they need to be swapped
+			if (compare(parentIndex, index) < 0) {
+				swap(parentIndex, index);
+
+				if (DEPQMetrics.ENABLED) {
+					metricDepth++;
+				}
+
+				// Set the node index as its parent
+				// so we shift up the next level
+				index = parentIndex;
+			} else {
+				// Otherwise the nodes are in correct positions, so we stop
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Bubbles a min element up the heap until it is in the correct
+	 * position. This will compare the nodes min (left) element with
+	 * its parent min (left) element and will swap them if the parent node
+	 * min element is larger than the nodes min element. This is then
+	 * repeated on the next parent node up the heap until the node is in the
+	 * correct position where its parent min element is smaller than its min
+	 * element and its children's min elements are larger than it.
+	 *
+	 * @param index the slot of the element, after adding this is the left
+	 *              element of the last node
+	 */
+	private void bubbleMinUp(int index) {
+		// Its parent slot
+		int parentIndex;
+
+		// Keep looping while we have a valid parent
+		// when we reach the root we should stop
+		while (index > 1) {
+			// The parents left element
+			parentIndex = parentMin(index);
+
+			// If the parent left element is larger than the node left element
+			// then they need to be swapped
+			if (compare(parentIndex, index) > 0) {
+				swap(parentIndex, index);
+
+				if (DEPQMetrics.ENABLED) {
+					metricDepth++;
+				}
+
+				// Set the node index as its parent
+				// so we shift up the next level
+				index = parentIndex;
+			} else {
+				// Otherwise the nodes are in correct positions, so we stop
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Gets the smallest element in the DEPQ and removes it from the DEPQ. The
+	 * smallest element is in the root node; this is the element which will be
+	 * returned after removing and ensuring that the heap is correct and if not
+	 * swapping elements where needed. Null is returned if the queue is empty.
+	 * If there is only one element in the queue then it is removed and
+	 * returned. Otherwise,
+	 * the last element in the array is moved into the root min (left) slot.
+	 * Now, starting at the root node, we compare both children to get the
+	 * child with the smallest min (left) element. Next we compare this child's
+	 * left element with the nodes left element and if the child left element
+	 * is smaller then we swap them otherwise the element is in the correct
+	 * position and we can stop. We continue this while the current node has a
+	 * child or until the node is in the correct position, where the child node
+	 * min (left) element is larger than the nodes min (left) element.
+	 *
+	 * @return returns the smallest element in the DEPQ
+	 */
+	@Override
+	public E getLeast() {
+		// There is no least element if the queue is empty
+		if (numElements == 0) {
+			return null;
+		}
+
+		return removeLeast();
+	}
+
+	/**
+	 * Removes the smallest element from a non-empty DEPQ, see getLeast()
+	 *
+	 * @return returns the smallest element in the DEPQ
+	 */
+	private E removeLeast() {
+		long start = DEPQMetrics.ENABLED ? startMetrics() : 0L;
+		E min = elementAt(0);
+
+		// Move the last element into the root left slot
+		// and remove it from the end of the array
+		// Remember to decrease number of elements as well
+		int last = --numElements;
+		move(last, 0);
+		elements[last] = null;
+
+		// Keep looping while we have a child, moving the left element down
+		// the heap until it's in the correct position
+		siftMinDown(0);
+
+		if (DEPQMetrics.ENABLED) {
+			record(DEPQMetrics.Operation.GET_LEAST, start);
+		}
+
+		// Return the smallest element removed from the root node
+		return min;
+	}
+
+	/**
+	 * Moves a min (left) element down the heap until it is in the
+	 * correct position. Whenever the element is swapped into a child node
+	 * it is also compared with the child's max (right) element and swapped
+	 * if it is larger, so that the child interval remains valid.
+	 *
+	 * @param index the slot of the element, the root is at slot 0
+	 */
+	private void siftMinDown(int index) {
+		// To get node children use
+		// (i * 2) + 1 (for left or + 2 for right)
+		// which are at slots 2 * child
+		int childIndex;
+
+		// Note: we are storing the childIndex as the left child slot
+		while ((childIndex = (index << 1) + 2) < numElements) {
+			// If we have a right child, compare the children to find
+			// the smallest left element
+			if (childIndex + 2 < numElements && compare(childIndex, childIndex + 2) > 0) {
+				// The right child has a smaller left element so we
+				// use the right child
+				childIndex += 2;
+			}
+
+			// The node left element is larger than the child left element
+			// so they need to be swapped
+			if (compare(index, childIndex) > 0) {
+				swap(index, childIndex);
+
+				// Ensure that the left element is the smallest
+				// otherwise swap left & right
+				if (childIndex + 1 < numElements && compare(childIndex, childIndex + 1) > 0) {
+					swap(childIndex, childIndex + 1);
+				}
+
+				if (DEPQMetrics.ENABLED) {
+					metricDepth++;
+				}
+
+				// Continue down the heap
+				index = childIndex;
+			} else {
+				// Otherwise the nodes are in correct positions, so we stop
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Gets the largest element in the DEPQ and removes it from the DEPQ. The
+	 * largest element is in the root node; this is the element which will be
+	 * returned after removing and ensuring that the heap is correct and if not
+	 * swapping elements where needed. Null is returned if the queue is empty.
+	 * If there is only one element in the queue then it is removed and
+	 * returned. Otherwise,
+	 * the last element in the array is moved into the root max (right) slot.
+	 * Now, starting at the root node, we compare both children to get the
+	 * child with the largest max (right) element. Next we compare this child's
+	 * right element with the nodes right element and if the child right
+	 * element is larger then we swap them otherwise the element is in the
+	 * correct position and we can stop. We continue this while the current
+	 * node has a child or until the node is in the correct position, where
+	 * the child node max (right) element is smaller than the nodes max (right)
+	 * element.
+	 *
+	 * @return returns the largest element in the DEPQ
+	 */
+	@Override
+	public E getMost() {
+		// There is no most element if the queue is empty
+		if (numElements == 0) {
+			return null;
+		}
+
+		return removeMost();
+	}
+
+	/**
+	 * Removes the largest element from a non-empty DEPQ, see getMost()
+	 *
+	 * @return returns the largest element in the DEPQ
+	 */
+	private E removeMost() {
+		long start = DEPQMetrics.ENABLED ? startMetrics() : 0L;
+		E max;
+
+		if (numElements == 1) {
+			// It is the only element so it is also the least
+			max = elementAt(0);
+			numElements = 0;
+			elements[0] = null;
+		} else {
+			max = elementAt(1);
+
+			// Move the last element into the root right slot
+			// and remove it from the end of the array
+			int last = --numElements;
+			move(last, 1);
+			elements[last] = null;
+
+			// Keep looping while we have a child, moving the right element down
+			// the heap until it's in the correct position
+			siftMaxDown(1);
+		}
+
+		if (DEPQMetrics.ENABLED) {
+			record(DEPQMetrics.Operation.GET_MOST, start);
+		}
+
+		// Return the largest element removed from the root node
+		return max;
+	}
+
+	/**
+	 * Moves a max (right) element down the heap until it is in the
+	 * correct position. A child node with only one element uses that
+	 * element as its max. Whenever the element is swapped into a child
+	 * node it is also compared with the child's min (left) element and
+	 * swapped if it is smaller, so that the child interval remains valid.
+	 *
+	 * @param index the slot of the element, the root is at slot 1
+	 */
+	private void siftMaxDown(int index) {
+		// The right slot of the child node
+		int childIndex;
+
+		// Keep looping while we have a child, note that the right slot of
+		// the last node may be empty so check its left slot exists
+		while ((childIndex = (index << 1) + 1) <= numElements) {
+			// The last node may only have a left element
+			// which then also acts as its right element
+			if (childIndex == numElements) {
+				childIndex--;
+			} else if (childIndex + 2 <= numElements) {
+				// We have a right child, compare the children to
+				// find the largest right element
+				int rightChild = childIndex + 2 == numElements ? childIndex + 1 : childIndex + 2;
+
+				if (compare(childIndex, rightChild) < 0) {
+					// The right child has a larger right element so we
+					// use the right child
+					childIndex = rightChild;
+				}
+			}
+
+			// The node right element is smaller than the child right element
+			// so they need to be swapped
+			if (compare(index, childIndex) < 0) {
+				swap(index, childIndex);
+
+				// Ensure that the right element is the largest
+				// otherwise swap left & right
+				if ((childIndex & 1) == 1 && compare(childIndex - 1, childIndex) > 0) {
+					swap(childIndex - 1, childIndex);
+				}
+
+				if (DEPQMetrics.ENABLED) {
+					metricDepth++;
+				}
+
+				// Continue down the heap
+				index = childIndex;
+			} else {
+				// Otherwise the nodes are in correct positions, so we stop
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Removes the element in any slot of a non-empty DEPQ. The last element
+	 * is moved into the slot and then moved to its correct position with
+	 * fixAt(int). This is O(log n).
+	 *
+	 * @param index the slot of the element
+	 * @return returns the removed element
+	 */
+	E removeAt(int index) {
+		E removed = elementAt(index);
+		int last = --numElements;
+
+		if (index != last) {
+			move(last, index);
+		}
+
+		elements[last] = null;
+
+		if (index != last) {
+			fixAt(index);
+		}
+
+		return removed;
+	}
+
+	/**
+	 * Moves the element in a slot to its correct position after it has been
+	 * put there or changed. Every other element must be in a valid position.
+	 * <p>
+	 * First the element is ordered with the other element of its node. If
+	 * they have to be swapped then the other element has moved to the other
+	 * side of the node and is sifted down that side, while the element is
+	 * bubbled up its new side if it is out of order with the parent node.
+	 * Otherwise the element is bubbled up if it is out of order with the parent
+	 * node (a lone element in the last node can go up either side) or sifted
+	 * down its side if it is out of order with the child nodes.
+	 *
+	 * @param index the slot of the element
+	 */
+	void fixAt(int index) {
+		if ((index & 1) == 0) {
+			// A left (min) element
+			if (index + 1 < numElements && compare(index, index + 1) > 0) {
+				// The element is larger than the right element
+				// so it goes to the max side and the right element
+				// goes down the min side
+				swap(index, index + 1);
+				siftMinDown(index);
+				bubbleMaxUp(index + 1);
+			} else if (index > 0 && compare(parentMin(index), index) > 0) {
+				bubbleMinUp(index);
+			} else if (index > 0 && index + 1 == numElements && compare(parentMin(index) + 1, index) < 0) {
+				// A lone element is also the max of its node
+				bubbleMaxUp(index);
+			} else {
+				siftMinDown(index);
+			}
+		} else {
+			// A right (max) element
+			if (compare(index - 1, index) > 0) {
+				// The element is smaller than the left element
+				// so it goes to the min side and the left element
+				// goes down the max side
+				swap(index - 1, index);
+				siftMaxDown(index);
+				bubbleMinUp(index - 1);
+			} else if (index > 1 && compare(parentMin(index) + 1, index) < 0) {
+				bubbleMaxUp(index);
+			} else {
+				siftMaxDown(index);
+			}
+		}
+	}
+
+	/**
+	 * Checks if the elements form a valid interval heap: the left element of
+	 * every node is no larger than its right element, and every node's
+	 * interval lies within its parent's interval.
+	 *
+	 * @return returns true if the elements are a valid interval heap
+	 */
+	boolean isHeap() {
+		for (int i = 0; i < numElements; i++) {
+			if ((i & 1) == 1) {
+				// The right element must not be smaller than the left element
+				if (compare(i - 1, i) > 0) {
+					return false;
+				}
+			} else if (i > 1) {
+				int parent = parentMin(i);
+				// A lone left element acts as the right element too
+				int max = i + 1 < numElements ? i + 1 : i;
+
+				if (compare(i, parent) < 0 || compare(max, parent + 1) > 0) {
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Gets the min slot of the parent node of a slot
+	 *
+	 * @param index a slot which is not in the root node
+	 * @return returns the min slot of the parent node
+	 */
+	private static int parentMin(int index) {
+		return ((index >> 1) - 1) >> 1 << 1;
+	}
+
+	/**
+	 * Gets the smallest element in the DEPQ but does not remove it from
+	 * the DEPQ. This will simply access the array and retrieve the min
+	 * element from the root node. Null may be returned if the queue is empty.
+	 *
+	 * @return returns the smallest element in the DEPQ
+	 */
+	@Override
+	public E inspectLeast() {
+		// If there are elements in the queue
+		// then return the least value is the
+		// left element of the root node otherwise
+		// return null
+		return numElements > 0 ? elementAt(0) : null;
+	}
+
+	/**
 	 * Gets the largest element in the DEPQ but does not remove it from
-	 * the DEPQ. This will simply access the nodes array and retrieve the max
+	 * the DEPQ. This will simply access the array and retrieve the max
 	 * element from the root node. Null may be returned if the queue is empty.
 	 *
 	 * @return returns the largest element in the DEPQ
@@ -550,24 +1326,362 @@ public class Daw48DEPQ<E extends Comparable<E>> implements DEPQ<E> {
 			return null;
 		}
 
-		// The most value is the right element of the root node
-		// but the right element is null if only one element
-		// is in the queue as we occupy the left element first
-		// then swap if needed
-		Node<E> root = nodes[0];
-		return numElements == 1 ? root.left : root.right;
+		// The most value is the right element of the root node
+		// but the right element is empty if only one element
+		// is in the queue as we occupy the left element first
+		// then swap if needed
+		return numElements == 1 ? elementAt(0) : elementAt(1);
+	}
+
+	/**
+	 * Removes up to k of the smallest elements from the DEPQ and writes them
+	 * in ascending order into an array, starting at index 0. Fewer elements
+	 * are removed if the DEPQ or the array is smaller than k. Nothing is
+	 * allocated so the same array can be reused for every batch.
+	 *
+	 * @param k   the maximum number of elements to remove
+	 * @param out the array to write the elements into
+	 * @return returns the number of elements removed
+	 */
+	public int drainLeast(int k, E[] out) {
+		int count = drainCount(k, out.length);
+
+		for (int i = 0; i < count; i++) {
+			out[i] = removeLeast();
+		}
+
+		return count;
+	}
+
+	/**
+	 * Removes up to k of the smallest elements from the DEPQ and adds them
+	 * in ascending order to a collection. Fewer elements are removed if the
+	 * DEPQ is smaller than k.
+	 *
+	 * @param k   the maximum number of elements to remove
+	 * @param out the collection to add the elements to
+	 * @return returns the number of elements removed
+	 */
+	public int drainLeast(int k, Collection<? super E> out) {
+		int count = drainCount(k, Integer.MAX_VALUE);
+
+		for (int i = 0; i < count; i++) {
+			out.add(removeLeast());
+		}
+
+		return count;
+	}
+
+	/**
+	 * Removes up to k of the largest elements from the DEPQ and writes them
+	 * in descending order into an array, starting at index 0. Fewer elements
+	 * are removed if the DEPQ or the array is smaller than k. Nothing is
+	 * allocated so the same array can be reused for every batch.
+	 *
+	 * @param k   the maximum number of elements to remove
+	 * @param out the array to write the elements into
+	 * @return returns the number of elements removed
+	 */
+	public int drainMost(int k, E[] out) {
+		int count = drainCount(k, out.length);
+
+		for (int i = 0; i < count; i++) {
+			out[i] = removeMost();
+		}
+
+		return count;
+	}
+
+	/**
+	 * Removes up to k of the largest elements from the DEPQ and adds them
+	 * in descending order to a collection. Fewer elements are removed if
+	 * the DEPQ is smaller than k.
+	 *
+	 * @param k   the maximum number of elements to remove
+	 * @param out the collection to add the elements to
+	 * @return returns the number of elements removed
+	 */
+	public int drainMost(int k, Collection<? super E> out) {
+		int count = drainCount(k, Integer.MAX_VALUE);
+
+		for (int i = 0; i < count; i++) {
+			out.add(removeMost());
+		}
+
+		return count;
+	}
+
+	/**
+	 * Removes the smallest elements from the DEPQ while they match a
+	 * condition and writes them in ascending order into an array, starting
+	 * at index 0. This stops at the first element which does not match or
+	 * when the DEPQ is empty or the array is full.
+	 *
+	 * @param condition the condition the removed elements must match
+	 * @param out       the array to write the elements into
+	 * @return returns the number of elements removed
+	 */
+	public int drainLeastWhile(Predicate<? super E> condition, E[] out) {
+		int count = 0;
+
+		while (count < out.length && numElements > 0 && condition.test(elementAt(0))) {
+			out[count++] = removeLeast();
+		}
+
+		return count;
+	}
+
+	/**
+	 * Removes the largest elements from the DEPQ while they match a
+	 * condition and writes them in descending order into an array, starting
+	 * at index 0. This stops at the first element which does not match or
+	 * when the DEPQ is empty or the array is full.
+	 *
+	 * @param condition the condition the removed elements must match
+	 * @param out       the array to write the elements into
+	 * @return returns the number of elements removed
+	 */
+	public int drainMostWhile(Predicate<? super E> condition, E[] out) {
+		int count = 0;
+
+		while (count < out.length && numElements > 0 && condition.test(inspectMost())) {
+			out[count++] = removeMost();
+		}
+
+		return count;
+	}
+
+	/**
+	 * Removes every element which is less than a threshold. Elements equal
+	 * to the threshold are kept. The elements are removed from the least end
+	 * one at a time, which is O(r log n) for r elements, until about n / log n
+	 * have been removed and a rebuild would have been as cheap. Any elements
+	 * still below the threshold are then removed in one pass by moving the
+	 * elements which are kept to the front of the array and rebuilding the
+	 * heap with heapify(), which is O(n). Without knowing r in advance this
+	 * never costs more than about twice the cheaper of the two.
+	 *
+	 * @param c the threshold
+	 * @return returns the number of elements removed
+	 */
+	public int removeLessThan(E c) {
+		return removeBeyond(c, false);
+	}
+
+	/**
+	 * Removes every element which is greater than a threshold, see
+	 * removeLessThan(Object).
+	 *
+	 * @param c the threshold
+	 * @return returns the number of elements removed
+	 */
+	public int removeGreaterThan(E c) {
+		return removeBeyond(c, true);
+	}
+
+	/**
+	 * Removes every element which matches a condition. The condition is
+	 * tested once for each element, in no particular order. Since every
+	 * element has to be tested anyway the elements which are kept are always
+	 * moved to the front of the array and the heap is rebuilt with heapify(),
+	 * which is O(n), unless nothing matched. If the condition throws an
+	 * exception the elements which matched before it are still removed.
+	 *
+	 * @param condition the condition the removed elements match
+	 * @return returns the number of elements removed
+	 */
+	public int removeIf(Predicate<? super E> condition) {
+		Objects.requireNonNull(condition, "Condition must not be null");
+
+		return removeSlots(i -> condition.test(elementAt(i)));
+	}
+
+	/**
+	 * Removes every element beyond a threshold at one end of the DEPQ,
+	 * using whichever of removing from the end or rebuilding is cheaper
+	 *
+	 * @param c    the threshold
+	 * @param most if the elements greater than the threshold are removed,
+	 *             otherwise the elements less than it are removed
+	 * @return returns the number of elements removed
+	 */
+	private int removeBeyond(E c, boolean most) {
+		// Don't compare with a null value
+		// throw an npe instead
+		if (c == null) {
+			throw new NullPointerException("Null values not allowed in DEPQ");
+		}
+
+		if (numElements == 0) {
+			return 0;
+		}
+
+		long key = keyOf(c);
+		// Rebuilding costs about the same as removing
+		// n / log n elements from the end
+		int limit = numElements / (32 - Integer.numberOfLeadingZeros(numElements));
+		int count = 0;
+
+		// Remove from the end until the end is within the threshold
+		// or the removals have cost as much as a rebuild
+		while (numElements > 0 && beyond(c, key, most && numElements > 1 ? 1 : 0, most)) {
+			if (count == limit) {
+				return count + removeSlots(i -> beyond(c, key, i, most));
+			}
+
+			if (most) {
+				removeMost();
+			} else {
+				removeLeast();
+			}
+
+			count++;
+		}
+
+		return count;
+	}
+
+	/**
+	 * Checks if the element in a slot is beyond a threshold
+	 *
+	 * @param c    the threshold
+	 * @param key  the key of the threshold, ignored if not ordered by a key
+	 * @param j    the slot of the element
+	 * @param most if checking for greater than the threshold,
+	 *             otherwise less than it
+	 * @return returns true if the element is beyond the threshold
+	 */
+	private boolean beyond(E c, long key, int j, boolean most) {
+		int cmp = compareElement(c, key, j);
+
+		return most ? cmp < 0 : cmp > 0;
+	}
+
+	/**
+	 * Removes the elements in every slot which matches a condition by moving
+	 * the other elements to the front of the array in one pass, and then
+	 * rebuilds the heap with heapify() if anything was removed
+	 *
+	 * @param remove checks if the element in a slot should be removed
+	 * @return returns the number of elements removed
+	 */
+	private int removeSlots(IntPredicate remove) {
+		int kept = 0;
+		int i = 0;
+
+		try {
+			for (; i < numElements; i++) {
+				if (!remove.test(i)) {
+					if (kept != i) {
+						move(i, kept);
+					}
+
+					kept++;
+				}
+			}
+		} finally {
+			// If the test threw then keep the rest, including
+			// the element it was testing
+			for (; i < numElements; i++) {
+				move(i, kept++);
+			}
+
+			int removed = numElements - kept;
+
+			if (removed > 0) {
+				Arrays.fill(elements, kept, numElements, null);
+				numElements = kept;
+				heapify();
+			}
+		}
+
+		return i - kept;
+	}
+
+	/**
+	 * Copies up to k of the smallest elements into an array in ascending
+	 * order, starting at index 0, without removing them. Fewer elements are
+	 * copied if the DEPQ or the array is smaller than k. The heap is walked
+	 * from the root with a Frontier so this is O(k log k) however large the
+	 * DEPQ is, and the DEPQ is not changed.
+	 *
+	 * @param k   the maximum number of elements to copy
+	 * @param out the array to write the elements into
+	 * @return returns the number of elements copied
+	 */
+	public int peekLeast(int k, E[] out) {
+		return peek(k, out, false);
+	}
+
+	/**
+	 * Copies up to k of the largest elements into an array in descending
+	 * order, starting at index 0, without removing them, see
+	 * peekLeast(int, E[]).
+	 *
+	 * @param k   the maximum number of elements to copy
+	 * @param out the array to write the elements into
+	 * @return returns the number of elements copied
+	 */
+	public int peekMost(int k, E[] out) {
+		return peek(k, out, true);
+	}
+
+	/**
+	 * Copies the first elements visited by a Frontier into an array
+	 *
+	 * @param k          the maximum number of elements to copy
+	 * @param out        the array to write the elements into
+	 * @param descending if the largest elements are copied
+	 * @return returns the number of elements copied
+	 */
+	private int peek(int k, E[] out, boolean descending) {
+		if (k < 0) {
+			throw new IllegalArgumentException("Cannot peek a negative number of elements: " + k);
+		}
+
+		int count = Math.min(k, Math.min(out.length, numElements));
+
+		// The root holds the first element, no frontier is needed
+		if (count == 1) {
+			out[0] = descending ? inspectMost() : inspectLeast();
+
+			return count;
+		}
+
+		// At most 2 slots are added for each one taken
+		Frontier frontier = new Frontier(descending, (int) Math.min(2L * count + 1, numElements));
+
+		for (int i = 0; i < count; i++) {
+			out[i] = elementAt(frontier.next());
+		}
+
+		return count;
+	}
+
+	/**
+	 * Gets how many elements a drain can remove
+	 *
+	 * @param k        the maximum number of elements asked for
+	 * @param capacity the number of elements the output can hold
+	 * @return returns the smallest of k, the capacity and the size
+	 */
+	private int drainCount(int k, int capacity) {
+		if (k < 0) {
+			throw new IllegalArgumentException("Cannot drain a negative number of elements: " + k);
+		}
+
+		return Math.min(k, Math.min(capacity, numElements));
 	}
 
 	/**
 	 * Checks if the DEPQ is empty which is only true when the number
-	 * of elements is 0 (also the number of nodes will be 0)
+	 * of elements is 0
 	 *
 	 * @return returns true if the queue is empty
 	 */
 	@Override
 	public boolean isEmpty() {
 		// The queue is empty if it contains 0 elements
-		// We could also check the number of nodes but this is redundant
 		return numElements == 0;
 	}
 
@@ -585,28 +1699,615 @@ public class Daw48DEPQ<E extends Comparable<E>> implements DEPQ<E> {
 	}
 
 	/**
-	 * This class represents a closed interval which we will use
-	 * as the basic of the interval heap. The root node will have
-	 * the smallest element in the left element and the largest
-	 * element in the right element
+	 * Writes a snapshot of the queue to a channel. The elements are written
+	 * with the encoder in slot order, exactly as they are laid out in the
+	 * array, see Snapshots. The writes are buffered and the channel is not
+	 * closed.
+	 *
+	 * @param channel the channel to write to
+	 * @param encoder writes each element
+	 * @throws IOException if the snapshot cannot be written
+	 */
+	public void writeSnapshot(WritableByteChannel channel, Encoder<? super E> encoder) throws IOException {
+		Snapshots.writeHeader(channel, Snapshots.OBJECT, numElements);
+
+		DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(Channels.newOutputStream(channel), Snapshots.BUFFER_BYTES));
+
+		for (int i = 0; i < numElements; i++) {
+			encoder.encode(elementAt(i), out);
+		}
+
+		// Only flush since closing would close the channel
+		out.flush();
+	}
+
+	/**
+	 * Writes a snapshot of the queue to a stream, see
+	 * writeSnapshot(WritableByteChannel, Encoder). The stream is not closed.
+	 *
+	 * @param out     the stream to write to
+	 * @param encoder writes each element
+	 * @throws IOException if the snapshot cannot be written
+	 */
+	public void writeSnapshot(OutputStream out, Encoder<? super E> encoder) throws IOException {
+		writeSnapshot(Channels.newChannel(out), encoder);
+	}
+
+	/**
+	 * Replaces the elements in the queue with a snapshot written by
+	 * writeSnapshot. The elements are decoded straight into a new array in
+	 * slot order with no comparisons, so the queue must order the elements the
+	 * same way as the queue which wrote the snapshot. If the elements are
+	 * ordered by a key the keys are extracted again. The reads are buffered
+	 * so the channel may be read past the end of the snapshot. If the snapshot
+	 * cannot be read the queue is left unchanged.
+	 *
+	 * @param channel the channel to read from
+	 * @param decoder reads each element
+	 * @throws IOException           if the snapshot cannot be read, a
+	 *                               StreamCorruptedException if it is corrupt
+	 *                               or ends early
+	 * @throws NullPointerException  if an element is decoded as null
+	 * @throws IllegalStateException if the queue is bounded and the snapshot
+	 *                               holds more elements than its capacity
+	 */
+	public void readSnapshot(ReadableByteChannel channel, Decoder<? extends E> decoder) throws IOException {
+		int size = Snapshots.readHeader(channel, Snapshots.OBJECT);
+
+		if (capacity > 0 && size > capacity) {
+			throw new IllegalStateException("DEPQ is full");
+		}
+
+		DataInputStream in = new DataInputStream(
+				new BufferedInputStream(Channels.newInputStream(channel), Snapshots.BUFFER_BYTES));
+		// A bounded queue keeps its array at the capacity, otherwise the
+		// array grows as the elements are read rather than trusting the size
+		Object[] e = new Object[capacity > 0 ? capacity : Snapshots.initialLength(size, 20)];
+		long[] k = keyExtractor != null ? new long[e.length] : null;
+
+		for (int i = 0; i < size; i++) {
+			E c;
+
+			try {
+				c = Objects.requireNonNull(decoder.decode(in), "Null values not allowed in DEPQ");
+			} catch (EOFException ex) {
+				throw Snapshots.truncated(ex);
+			}
+
+			if (i == e.length) {
+				e = Arrays.copyOf(e, Snapshots.grownLength(e.length, i + 1, size, 20));
+
+				if (k != null) {
+					k = Arrays.copyOf(k, e.length);
+				}
+			}
+
+			e[i] = c;
+
+			if (k != null) {
+				k[i] = keyExtractor.applyAsLong(c);
+			}
+		}
+
+		elements = e;
+		keys = k;
+		numElements = size;
+	}
+
+	/**
+	 * Replaces the elements in the queue with a snapshot read from a stream,
+	 * see readSnapshot(ReadableByteChannel, Decoder). The stream is not closed.
+	 *
+	 * @param in      the stream to read from
+	 * @param decoder reads each element
+	 * @throws IOException if the snapshot cannot be read
+	 */
+	public void readSnapshot(InputStream in, Decoder<? extends E> decoder) throws IOException {
+		readSnapshot(Channels.newChannel(in), decoder);
+	}
+
+	/**
+	 * Creates a stream of the elements in the order they are stored in the
+	 * array, which is not sorted. The spliterator splits the array in half so
+	 * the stream can be used in parallel. The queue is not changed, but it
+	 * must not be changed while the stream is being used.
+	 *
+	 * @return returns a stream of the elements in no particular order
+	 */
+	@SuppressWarnings("unchecked")
+	public Stream<E> unorderedStream() {
+		// The array spliterator splits the range in half
+		Spliterator<Object> spliterator = Spliterators.spliterator(elements, 0, numElements, Spliterator.NONNULL);
+
+		return StreamSupport.stream((Spliterator<E>) (Spliterator<?>) spliterator, false);
+	}
+
+	/**
+	 * Creates a stream of the elements from the least to the most. The
+	 * elements are found lazily with a Frontier, so reading the first k
+	 * elements is O(k log k) and the queue is never copied or sorted. The
+	 * queue is not changed, but it must not be changed while the stream is
+	 * being used.
+	 *
+	 * @return returns a stream of the elements in ascending order
+	 */
+	public Stream<E> ascendingStream() {
+		return StreamSupport.stream(new OrderedSpliterator(false), false);
+	}
+
+	/**
+	 * Creates a stream of the elements from the most to the least, see
+	 * ascendingStream().
+	 *
+	 * @return returns a stream of the elements in descending order
+	 */
+	public Stream<E> descendingStream() {
+		return StreamSupport.stream(new OrderedSpliterator(true), false);
+	}
+
+	/**
+	 * Passes the metrics of the operation which has just finished to
+	 * DEPQMetrics, see startMetrics(). Only called when metrics
+	 * are enabled.
+	 *
+	 * @param operation the operation
+	 * @param start     the value of System.nanoTime() when the operation started
+	 */
+	private void record(DEPQMetrics.Operation operation, long start) {
+		DEPQMetrics.operation(operation, System.nanoTime() - start, metricComparisons, metricSwaps, metricDepth);
+	}
+
+	/**
+	 * Starts counting the metrics of an operation from zero, so that work
+	 * done by operations which are not recorded is not counted. Only called
+	 * when metrics are enabled.
+	 *
+	 * @return returns the value of System.nanoTime() when the operation started
+	 */
+	private long startMetrics() {
+		metricComparisons = 0;
+		metricSwaps = 0;
+		metricDepth = 0;
+
+		return System.nanoTime();
+	}
+
+	/**
+	 * Gets the element stored in a slot of the array
+	 *
+	 * @param index the slot of the element
+	 * @return returns the element in the slot
+	 */
+	@SuppressWarnings("unchecked")
+	private E elementAt(int index) {
+		return (E) elements[index];
+	}
+
+	/**
+	 * Stores an element in a slot of the array, extracting
+	 * its key if the elements are ordered by a key
+	 *
+	 * @param index the slot to store the element in
+	 * @param c     the element to store
+	 */
+	private void set(int index, E c) {
+		set(index, c, keyOf(c));
+	}
+
+	/**
+	 * Stores an element with a key which has already been
+	 * extracted in a slot of the array
+	 *
+	 * @param index the slot to store the element in
+	 * @param c     the element to store
+	 * @param key   the key of the element, ignored if not ordered by a key
+	 */
+	private void set(int index, E c, long key) {
+		elements[index] = c;
+
+		if (keys != null) {
+			keys[index] = key;
+		}
+
+		moved(c, index);
+	}
+
+	/**
+	 * Called whenever an element is stored in a slot by set, swap or move,
+	 * which is every time the sift and bubble loops move an element. Does
+	 * nothing here; AddressableDaw48DEPQ overrides it to keep the slot of each
+	 * handle up to date. The bulk paths which copy whole ranges of the array
+	 * (meld and readSnapshot) do not call it.
+	 *
+	 * @param c     the element
+	 * @param index the slot it is now stored in
+	 */
+	void moved(E c, int index) {
+	}
+
+	/**
+	 * Extracts the key of an element
+	 *
+	 * @param c the element
+	 * @return returns the key of the element or 0 if not ordered by a key
+	 */
+	private long keyOf(E c) {
+		return keys != null ? keyExtractor.applyAsLong(c) : 0L;
+	}
+
+	/**
+	 * Compares the elements stored in two slots of the array. When the
+	 * elements are ordered by a key only the stored keys are compared.
+	 *
+	 * @param i the slot of the first element
+	 * @param j the slot of the second element
+	 * @return returns a negative integer, zero or a positive integer as the
+	 * first element is less than, equal to or greater than the second
+	 */
+	@SuppressWarnings("unchecked")
+	private int compare(int i, int j) {
+		if (DEPQMetrics.ENABLED) {
+			metricComparisons++;
+		}
+
+		if (keys != null) {
+			return Long.compare(keys[i], keys[j]);
+		}
+
+		if (comparator != null) {
+			return comparator.compare(elementAt(i), elementAt(j));
+		}
+
+		return ((Comparable<? super E>) elements[i]).compareTo(elementAt(j));
+	}
+
+	/**
+	 * Compares an element which is not in the array with the
+	 * element stored in a slot of the array
+	 *
+	 * @param c   the element which is not in the array
+	 * @param key the key of the element, ignored if not ordered by a key
+	 * @param j   the slot of the second element
+	 * @return returns a negative integer, zero or a positive integer as the
+	 * first element is less than, equal to or greater than the second
+	 */
+	@SuppressWarnings("unchecked")
+	private int compareElement(E c, long key, int j) {
+		if (DEPQMetrics.ENABLED) {
+			metricComparisons++;
+		}
+
+		if (keys != null) {
+			return Long.compare(key, keys[j]);
+		}
+
+		if (comparator != null) {
+			return comparator.compare(c, elementAt(j));
+		}
+
+		return ((Comparable<? super E>) c).compareTo(elementAt(j));
+	}
+
+	/**
+	 * Swaps the elements (and their keys) stored in two slots of the array
+	 *
+	 * @param i the slot of the first element
+	 * @param j the slot of the second element
+	 */
+	private void swap(int i, int j) {
+		if (DEPQMetrics.ENABLED) {
+			metricSwaps++;
+		}
+
+		E tmp = elementAt(i);
+		elements[i] = elements[j];
+		elements[j] = tmp;
+
+		if (keys != null) {
+			long key = keys[i];
+			keys[i] = keys[j];
+			keys[j] = key;
+		}
+
+		moved(elementAt(i), i);
+		moved(tmp, j);
+	}
+
+	/**
+	 * Copies the element (and its key) in one slot of the array to another
+	 *
+	 * @param from the slot to copy from
+	 * @param to   the slot to copy to
+	 */
+	private void move(int from, int to) {
+		if (DEPQMetrics.ENABLED) {
+			metricSwaps++;
+		}
+
+		elements[to] = elements[from];
+
+		if (keys != null) {
+			keys[to] = keys[from];
+		}
+
+		moved(elementAt(to), to);
+	}
+
+	/**
+	 * Visits the slots of the heap in sorted order without changing the heap.
+	 * Every element of the interval heap is no smaller than some other element
+	 * (its predecessor) apart from the least element at the root:
+	 * <ul>
+	 * <li>the max element of a node follows its min element</li>
+	 * <li>the min elements of the child nodes follow the min element of
+	 * their parent</li>
+	 * </ul>
+	 * So the frontier is a small binary heap of slots, starting with the root
+	 * min slot. Each time the smallest slot is taken from the frontier the
+	 * slots which follow it are added. An element is only added after its
+	 * predecessor has been taken, so the frontier always holds the next
+	 * smallest element and never more than 2k + 1 slots after k have been
+	 * taken. Descending order works the same way using the max sides: the min
+	 * element of a node and the max elements of the child nodes (or the lone
+	 * element of the last node) follow its max element.
+	 */
+	private final class Frontier {
+
+		/**
+		 * If the slots are visited from the most to the least
+		 */
+		private final boolean descending;
+
+		/**
+		 * The binary heap of slots, ordered by the elements in them
+		 */
+		private int[] heap;
+
+		/**
+		 * The number of slots in the frontier
+		 */
+		private int size;
+
+		/**
+		 * Creates a frontier which starts at the least or the most element
+		 *
+		 * @param descending if the slots are visited from the most to the least
+		 */
+		private Frontier(boolean descending) {
+			this(descending, 16);
+		}
+
+		/**
+		 * Creates a frontier which starts at the least or the most element
+		 * with room for a number of slots before it has to grow
+		 *
+		 * @param descending if the slots are visited from the most to the least
+		 * @param capacity   the number of slots to make room for
+		 */
+		private Frontier(boolean descending, int capacity) {
+			this.descending = descending;
+			heap = new int[Math.max(capacity, 2)];
+
+			if (numElements > 0) {
+				// The root max, or the root min if it is the only element
+				push(descending && numElements > 1 ? 1 : 0);
+			}
+		}
+
+		/**
+		 * Checks if there are any slots left to visit
+		 *
+		 * @return returns true if there is another slot
+		 */
+		private boolean hasNext() {
+			return size > 0;
+		}
+
+		/**
+		 * Takes the slot with the next element from the frontier
+		 * and adds the slots which follow it
+		 *
+		 * @return returns the slot of the next element
+		 */
+		private int next() {
+			int slot = heap[0];
+
+			// Move the last slot to the top and sift it down
+			int last = heap[--size];
+			int index = 0;
+			int child;
+
+			while ((child = (index << 1) + 1) < size) {
+				if (child + 1 < size && compareSlots(heap[child + 1], heap[child]) < 0) {
+					child++;
+				}
+
+				if (compareSlots(last, heap[child]) <= 0) {
+					break;
+				}
+
+				heap[index] = heap[child];
+				index = child;
+			}
+
+			heap[index] = last;
+
+			if (!descending) {
+				if ((slot & 1) == 0) {
+					// The max of the node and the mins of its children
+					int childMin = (slot << 1) + 2;
+
+					if (slot + 1 < numElements) {
+						push(slot + 1);
+					}
+
+					if (childMin < numElements) {
+						push(childMin);
+					}
+
+					if (childMin + 2 < numElements) {
+						push(childMin + 2);
+					}
+				}
+			} else if ((slot & 1) == 1) {
+				// The min of the node and the maxes of its children,
+				// a lone element in the last node is its max
+				int childMax = (slot << 1) + 1;
+
+				push(slot - 1);
+
+				if (childMax - 1 < numElements) {
+					push(childMax < numElements ? childMax : childMax - 1);
+				}
+
+				if (childMax + 1 < numElements) {
+					push(childMax + 2 < numElements ? childMax + 2 : childMax + 1);
+				}
+			}
+
+			return slot;
+		}
+
+		/**
+		 * Adds a slot to the frontier
+		 *
+		 * @param slot the slot to add
+		 */
+		private void push(int slot) {
+			if (size == heap.length) {
+				heap = Arrays.copyOf(heap, size << 1);
+			}
+
+			int index = size++;
+			int parent;
+
+			// Bubble the slot up
+			while (index > 0 && compareSlots(slot, heap[parent = (index - 1) >> 1]) < 0) {
+				heap[index] = heap[parent];
+				index = parent;
+			}
+
+			heap[index] = slot;
+		}
+
+		/**
+		 * Compares the elements in two slots in the order they are visited
+		 *
+		 * @param i the slot of the first element
+		 * @param j the slot of the second element
+		 * @return returns a negative integer if the first element is visited first
+		 */
+		private int compareSlots(int i, int j) {
+			return descending ? compare(j, i) : compare(i, j);
+		}
+	}
+
+	/**
+	 * A spliterator which visits the elements in sorted order using a Frontier.
+	 * It cannot be split since the order is only found one element at a time.
+	 */
+	private final class OrderedSpliterator implements Spliterator<E> {
+
+		/**
+		 * Finds the next element
+		 */
+		private final Frontier frontier;
+
+		/**
+		 * The number of elements which have not been visited
+		 */
+		private int remaining = numElements;
+
+		/**
+		 * Creates a spliterator which starts at the least or the most element
+		 *
+		 * @param descending if the elements are visited from the most to the least
+		 */
+		private OrderedSpliterator(boolean descending) {
+			frontier = new Frontier(descending);
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super E> action) {
+			if (!frontier.hasNext()) {
+				return false;
+			}
+
+			remaining--;
+			action.accept(elementAt(frontier.next()));
+
+			return true;
+		}
+
+		@Override
+		public Spliterator<E> trySplit() {
+			return null;
+		}
+
+		@Override
+		public long estimateSize() {
+			return remaining;
+		}
+
+		@Override
+		public int characteristics() {
+			return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.NONNULL;
+		}
+	}
+
+	/**
+	 * Builds the subtree below a node for heapify(). Above the split depth
+	 * the two child subtrees are built at the same time and then the node
+	 * itself is sifted, below it the subtree is built on this thread.
 	 */
-	public static class Node<E> {
+	private final class HeapifyTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The root node of the subtree
+		 */
+		private final int node;
+
+		/**
+		 * The depth of the node, the root is at depth 0
+		 */
+		private final int depth;
 
 		/**
-		 * Left element is the smaller in the interval
-		 * Right element is the larger in the interval
+		 * The depth from which subtrees are built on one thread
 		 */
-		public E left, right;
+		private final int splitDepth;
 
 		/**
-		 * Create a new node with a left and right element
+		 * Create a new task to build a subtree
 		 *
-		 * @param left  The left element - minimum
-		 * @param right The right element - maximum
+		 * @param node       the root node of the subtree
+		 * @param depth      the depth of the node
+		 * @param splitDepth the depth from which subtrees are built on one thread
 		 */
-		public Node(E left, E right) {
-			this.left = left;
-			this.right = right;
+		HeapifyTask(int node, int depth, int splitDepth) {
+			this.node = node;
+			this.depth = depth;
+			this.splitDepth = splitDepth;
+		}
+
+		@Override
+		protected void compute() {
+			int left = (node << 1) + 1;
+
+			// Small enough, or the node has at most one child
+			if (depth >= splitDepth || left + 1 >= (numElements + 1) >> 1) {
+				heapifySubtree(node);
+				return;
+			}
+
+			invokeAll(new HeapifyTask(left, depth + 1, splitDepth),
+					new HeapifyTask(left + 1, depth + 1, splitDepth));
+
+			// Both children are valid interval heaps now
+			heapifyNode(node);
 		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,24 @@
+package cs21120.depq;
+
+import java.io.DataInput;
+import java.io.IOException;
+
+/**
+ * Reads an element of a DEPQ from a snapshot written with an Encoder, see
+ * Daw48DEPQ.readSnapshot(ReadableByteChannel, Decoder).
+ *
+ * @param <E> the type of the elements
+ * @author Darren White
+ */
+@FunctionalInterface
+public interface Decoder<E> {
+
+	/**
+	 * Reads an element
+	 *
+	 * @param in the input to read from
+	 * @return returns the element, which must not be null
+	 * @throws IOException if the element cannot be read
+	 */
+	E decode(DataInput in) throws IOException;
+}
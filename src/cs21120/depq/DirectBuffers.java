@@ -0,0 +1,85 @@
+package cs21120.depq;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * Frees the memory of direct (and memory-mapped) byte buffers straight away
+ * instead of waiting for the garbage collector to find them. There is no public
+ * API for this so the JDK internals are used through reflection: Unsafe's
+ * invokeCleaner on Java 9 and later, or the buffer's cleaner on Java 8. If
+ * neither can be found the memory is left for the garbage collector to free.
+ *
+ * @author Darren White
+ */
+final class DirectBuffers {
+
+	/**
+	 * Frees a direct buffer, or null if buffers cannot be freed
+	 */
+	private static final Freer FREER = findFreer();
+
+	private DirectBuffers() {
+	}
+
+	/**
+	 * Frees the memory of a direct buffer. The buffer (and any views of it)
+	 * must not be used again.
+	 *
+	 * @param buffer the buffer to free
+	 */
+	static void free(ByteBuffer buffer) {
+		if (FREER != null && buffer != null && buffer.isDirect()) {
+			try {
+				FREER.free(buffer);
+			} catch (Exception e) {
+				// Leave it for the garbage collector
+			}
+		}
+	}
+
+	/**
+	 * Finds a way of freeing direct buffers on this JVM
+	 *
+	 * @return returns the freer or null if none could be found
+	 */
+	private static Freer findFreer() {
+		try {
+			// Java 9 and later
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			Object unsafe = theUnsafe.get(null);
+
+			return buffer -> invokeCleaner.invoke(unsafe, buffer);
+		} catch (Exception e) {
+			// Not Java 9
+		}
+
+		try {
+			// Java 8
+			Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+			Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+
+			return buffer -> {
+				Object c = cleaner.invoke(buffer);
+
+				if (c != null) {
+					clean.invoke(c);
+				}
+			};
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Frees the memory of a buffer
+	 */
+	private interface Freer {
+
+		void free(ByteBuffer buffer) throws Exception;
+	}
+}
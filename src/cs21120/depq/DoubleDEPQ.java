@@ -0,0 +1,404 @@
+package cs21120.depq;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.NoSuchElementException;
+
+/**
+ * An interval heap which stores primitive double values instead of boxed
+ * elements. The layout and the algorithms are the same as in Daw48DEPQ:
+ * node i occupies slot 2i (min) and slot 2i + 1 (max) of a flat double[]
+ * array, but the values are compared directly so nothing is boxed and no
+ * compareTo method is called when adding or removing. Values are compared
+ * with Double.compare so NaN and -0.0 are ordered the same way as
+ * Double.compareTo. Adding and removing are O(log n), inspecting is O(1).
+ * <p>
+ * The primitive methods (addDouble, getLeastDouble etc.) should be used on hot
+ * paths. The DEPQ methods are also implemented so this class can be used
+ * wherever a DEPQ&lt;Double&gt; is expected, but they box their results.
+ *
+ * @author Darren White
+ */
+public class DoubleDEPQ implements DEPQ<Double> {
+
+	/**
+	 * Used to store all of the values in the queue, node i is stored
+	 * in slot 2i (left/min) and slot 2i + 1 (right/max)
+	 */
+	private double[] elements;
+
+	/**
+	 * Number of values in the queue, this will also
+	 * act as a pointer to the next free slot in the array
+	 */
+	private int numElements = 0;
+
+	/**
+	 * Creates a new empty DoubleDEPQ
+	 */
+	public DoubleDEPQ() {
+		this(20);
+	}
+
+	/**
+	 * Creates a new empty DoubleDEPQ which can hold the given number of
+	 * values before the array needs to be expanded
+	 *
+	 * @param initialCapacity the initial number of values the array can hold
+	 */
+	public DoubleDEPQ(int initialCapacity) {
+		if (initialCapacity < 2) {
+			throw new IllegalArgumentException("Initial capacity must be at least 2: " + initialCapacity);
+		}
+
+		elements = new double[initialCapacity];
+	}
+
+	/**
+	 * Adds a value into the queue in the correct position. The value is
+	 * placed in the next free slot and then bubbled up the min or max side
+	 * of the heap, see Daw48DEPQ.add(Object).
+	 *
+	 * @param c the value to insert into the queue
+	 */
+	public void addDouble(double c) {
+		// If the array is full we need to make it larger
+		if (elements.length == numElements) {
+			double[] newElements = new double[numElements + (numElements >> 1)];
+			System.arraycopy(elements, 0, newElements, 0, numElements);
+			elements = newElements;
+		}
+
+		double[] e = elements;
+		// The slot the new value goes into
+		int index = numElements++;
+		e[index] = c;
+
+		// An odd slot is the right value of the last node
+		// so make sure the left value is the smallest
+		if ((index & 1) == 1 && Double.compare(e[index - 1], c) > 0) {
+			e[index] = e[index - 1];
+			e[--index] = c;
+		}
+
+		// The heap is fine if there are only two values
+		if (numElements <= 2) {
+			return;
+		}
+
+		// Get the parent of the last node
+		int parent = ((index >> 1) - 1) >> 1 << 1;
+		if (Double.compare(e[parent], c) > 0) {
+			bubbleMinUp(index, c);
+		} else if (Double.compare(e[parent + 1], c) < 0) {
+			bubbleMaxUp(index, c);
+		}
+	}
+
+	/**
+	 * Bubbles a value up the min (left) side of the heap until its parent
+	 * min value is not larger than it.
+	 *
+	 * @param index the slot of the value
+	 * @param c     the value to move
+	 */
+	private void bubbleMinUp(int index, double c) {
+		double[] e = elements;
+		int parentIndex;
+
+		// Shift the parents down until we find the slot for c
+		while (index > 1 && Double.compare(e[parentIndex = ((index >> 1) - 1) >> 1 << 1], c) > 0) {
+			e[index] = e[parentIndex];
+			index = parentIndex;
+		}
+
+		e[index] = c;
+	}
+
+	/**
+	 * Bubbles a value up the max (right) side of the heap until its parent
+	 * max value is not smaller than it.
+	 *
+	 * @param index the slot of the value
+	 * @param c     the value to move
+	 */
+	private void bubbleMaxUp(int index, double c) {
+		double[] e = elements;
+		int parentIndex;
+
+		// Shift the parents down until we find the slot for c
+		while (index > 1 && Double.compare(e[parentIndex = (((index >> 1) - 1) >> 1 << 1) + 1], c) < 0) {
+			e[index] = e[parentIndex];
+			index = parentIndex;
+		}
+
+		e[index] = c;
+	}
+
+	/**
+	 * Gets the smallest value in the queue and removes it from the queue.
+	 * The last value in the array is moved into the root min slot and
+	 * moved down the heap, see Daw48DEPQ.getLeast().
+	 *
+	 * @return returns the smallest value in the queue
+	 * @throws NoSuchElementException if the queue is empty
+	 */
+	public double getLeastDouble() {
+		if (numElements == 0) {
+			throw new NoSuchElementException("DEPQ is empty");
+		}
+
+		double[] e = elements;
+		double min = e[0];
+		double c = e[--numElements];
+		int size = numElements;
+		// The slot of the value, start at the root
+		int index = 0;
+		int childIndex;
+
+		// Keep looping while we have a child, moving c down
+		// the heap until it's in the correct position
+		while ((childIndex = (index << 1) + 2) < size) {
+			// Use the child with the smallest left value
+			if (childIndex + 2 < size && Double.compare(e[childIndex], e[childIndex + 2]) > 0) {
+				childIndex += 2;
+			}
+
+			if (Double.compare(c, e[childIndex]) <= 0) {
+				break;
+			}
+
+			// Move the child value up
+			e[index] = e[childIndex];
+
+			// Ensure that the left value of the child is the smallest
+			if (childIndex + 1 < size && Double.compare(c, e[childIndex + 1]) > 0) {
+				double tmp = e[childIndex + 1];
+				e[childIndex + 1] = c;
+				c = tmp;
+			}
+
+			index = childIndex;
+		}
+
+		e[index] = c;
+
+		return min;
+	}
+
+	/**
+	 * Gets the largest value in the queue and removes it from the queue.
+	 * The last value in the array is moved into the root max slot and
+	 * moved down the heap, see Daw48DEPQ.getMost().
+	 *
+	 * @return returns the largest value in the queue
+	 * @throws NoSuchElementException if the queue is empty
+	 */
+	public double getMostDouble() {
+		if (numElements <= 1) {
+			// The only value is the max as well
+			return getLeastDouble();
+		}
+
+		double[] e = elements;
+		double max = e[1];
+		double c = e[--numElements];
+		int size = numElements;
+		// The slot of the value, start at the root
+		int index = 1;
+		int childIndex;
+
+		// Keep looping while we have a child, moving c down
+		// the heap until it's in the correct position
+		while ((childIndex = (index << 1) + 1) <= size) {
+			// The last node may only have a left value
+			// which then also acts as its right value
+			if (childIndex == size) {
+				childIndex--;
+			} else if (childIndex + 2 <= size) {
+				// Use the child with the largest right value
+				int rightChild = childIndex + 2 == size ? childIndex + 1 : childIndex + 2;
+
+				if (Double.compare(e[childIndex], e[rightChild]) < 0) {
+					childIndex = rightChild;
+				}
+			}
+
+			if (Double.compare(c, e[childIndex]) >= 0) {
+				break;
+			}
+
+			// Move the child value up
+			e[index] = e[childIndex];
+
+			// Ensure that the right value of the child is the largest
+			if ((childIndex & 1) == 1 && Double.compare(c, e[childIndex - 1]) < 0) {
+				double tmp = e[childIndex - 1];
+				e[childIndex - 1] = c;
+				c = tmp;
+			}
+
+			index = childIndex;
+		}
+
+		e[index] = c;
+
+		return max;
+	}
+
+	/**
+	 * Gets the smallest value in the queue but does not remove it
+	 *
+	 * @return returns the smallest value in the queue
+	 * @throws NoSuchElementException if the queue is empty
+	 */
+	public double inspectLeastDouble() {
+		if (numElements == 0) {
+			throw new NoSuchElementException("DEPQ is empty");
+		}
+
+		return elements[0];
+	}
+
+	/**
+	 * Gets the largest value in the queue but does not remove it
+	 *
+	 * @return returns the largest value in the queue
+	 * @throws NoSuchElementException if the queue is empty
+	 */
+	public double inspectMostDouble() {
+		if (numElements == 0) {
+			throw new NoSuchElementException("DEPQ is empty");
+		}
+
+		return elements[numElements == 1 ? 0 : 1];
+	}
+
+	/**
+	 * Adds a boxed value into the queue, see addDouble(double)
+	 *
+	 * @param c the value to insert into the queue
+	 */
+	@Override
+	public void add(Double c) {
+		// Unboxing throws the npe for null values
+		addDouble(c);
+	}
+
+	/**
+	 * Removes the smallest value and returns it boxed
+	 *
+	 * @return returns the smallest value or null if the queue is empty
+	 */
+	@Override
+	public Double getLeast() {
+		return numElements > 0 ? getLeastDouble() : null;
+	}
+
+	/**
+	 * Removes the largest value and returns it boxed
+	 *
+	 * @return returns the largest value or null if the queue is empty
+	 */
+	@Override
+	public Double getMost() {
+		return numElements > 0 ? getMostDouble() : null;
+	}
+
+	/**
+	 * Returns the smallest value boxed but does not remove it
+	 *
+	 * @return returns the smallest value or null if the queue is empty
+	 */
+	@Override
+	public Double inspectLeast() {
+		return numElements > 0 ? inspectLeastDouble() : null;
+	}
+
+	/**
+	 * Returns the largest value boxed but does not remove it
+	 *
+	 * @return returns the largest value or null if the queue is empty
+	 */
+	@Override
+	public Double inspectMost() {
+		return numElements > 0 ? inspectMostDouble() : null;
+	}
+
+	/**
+	 * Checks if the queue is empty
+	 *
+	 * @return returns true if the queue is empty
+	 */
+	@Override
+	public boolean isEmpty() {
+		return numElements == 0;
+	}
+
+	/**
+	 * Gets the number of values in the queue
+	 *
+	 * @return returns the number of values currently in the queue
+	 */
+	@Override
+	public int size() {
+		return numElements;
+	}
+
+	/**
+	 * Writes a snapshot of the queue to a channel. The values are written
+	 * exactly as they are laid out in the array, see Snapshots. The channel
+	 * is not closed.
+	 *
+	 * @param channel the channel to write to
+	 * @throws IOException if the snapshot cannot be written
+	 */
+	public void writeSnapshot(WritableByteChannel channel) throws IOException {
+		Snapshots.writeHeader(channel, Snapshots.DOUBLE, numElements);
+		Snapshots.writeDoubles(channel, elements, numElements);
+	}
+
+	/**
+	 * Writes a snapshot of the queue to a stream, see
+	 * writeSnapshot(WritableByteChannel). The stream is not closed.
+	 *
+	 * @param out the stream to write to
+	 * @throws IOException if the snapshot cannot be written
+	 */
+	public void writeSnapshot(OutputStream out) throws IOException {
+		writeSnapshot(Channels.newChannel(out));
+	}
+
+	/**
+	 * Replaces the values in the queue with a snapshot written by
+	 * writeSnapshot. The values are copied straight into a new array with no
+	 * comparisons, and nothing past the end of the snapshot is read from the
+	 * channel. If the snapshot cannot be read the queue is left unchanged.
+	 *
+	 * @param channel the channel to read from
+	 * @throws IOException if the snapshot cannot be read, a
+	 *                     StreamCorruptedException if it is corrupt or ends early
+	 */
+	public void readSnapshot(ReadableByteChannel channel) throws IOException {
+		int size = Snapshots.readHeader(channel, Snapshots.DOUBLE);
+		double[] e = Snapshots.readDoubles(channel, size, 2);
+
+		elements = e;
+		numElements = size;
+	}
+
+	/**
+	 * Replaces the values in the queue with a snapshot read from a stream,
+	 * see readSnapshot(ReadableByteChannel). The stream is not closed.
+	 *
+	 * @param in the stream to read from
+	 * @throws IOException if the snapshot cannot be read
+	 */
+	public void readSnapshot(InputStream in) throws IOException {
+		readSnapshot(Channels.newChannel(in));
+	}
+}
@@ -0,0 +1,25 @@
+package cs21120.depq;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Writes an element of a DEPQ into a snapshot, see
+ * Daw48DEPQ.writeSnapshot(WritableByteChannel, Encoder). The element must
+ * be written so that the matching Decoder reads exactly the same bytes back.
+ *
+ * @param <E> the type of the elements
+ * @author Darren White
+ */
+@FunctionalInterface
+public interface Encoder<E> {
+
+	/**
+	 * Writes an element
+	 *
+	 * @param element the element to write, never null
+	 * @param out     the output to write to
+	 * @throws IOException if the element cannot be written
+	 */
+	void encode(E element, DataOutput out) throws IOException;
+}
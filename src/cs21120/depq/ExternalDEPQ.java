@@ -0,0 +1,868 @@
+package cs21120.depq;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A Double-ended Priority Queue which can hold far more elements than fit in
+ * memory by spilling them to files. At most memoryBudget elements are kept in
+ * the Daw48DEPQ heap. When it is full and another element is added, the
+ * heap is emptied in order: the smallest and largest quarters go back into the
+ * heap, so both ends of the queue stay in memory, and the middle half is
+ * written to a new file as a sorted run.
+ * <p>
+ * A run is only read back as an end of the queue reaches it. Each run keeps
+ * the elements it has read from its front (its smallest elements) and from its
+ * back (its largest elements), reading another block of BLOCK_BYTES from the
+ * file whenever one end runs out. getLeast and getMost compare the end of the
+ * heap with the matching end of every run and take the best. When there are
+ * more than MAX_RUNS runs the smaller half of them are merged into one, so a
+ * lookup never compares more than MAX_RUNS + 1 elements and the runs grow
+ * geometrically, like the levels of a log-structured merge tree.
+ * <p>
+ * Each element is written as its length, the bytes written by the Encoder,
+ * and its length again, so a run can be read forwards and backwards. The runs
+ * are written and read in blocks through a FileChannel, so each element costs
+ * O(1 / B) I/O every time it is written or read, where B is the number of
+ * elements in a block. An element is written once when it is spilled and
+ * once for each merge it takes part in, which is O(log n) merges as each merge
+ * puts it in a run several times larger, and it is read once for each of those
+ * writes. This gives the amortised O((1 / B) log n) I/O per element.
+ * <p>
+ * memoryBudget bounds the heap, not all of the memory the queue uses. On top
+ * of the heap each run keeps up to two blocks of decoded elements, one for
+ * each end, and a spill briefly holds a second array of memoryBudget
+ * elements. There are never more than MAX_RUNS + 1 runs, since the merge only
+ * reads runs which are already open. A merge reads its runs through copies,
+ * so that a failed merge loses nothing, and each copy can hold two more
+ * blocks. So the memory used is at most about 2 * memoryBudget elements plus
+ * the elements decoded from 3 * (MAX_RUNS + 1) blocks of BLOCK_BYTES. This
+ * does not grow with the number of elements, but when the elements are small
+ * a block holds many of them, and the blocks can take far more memory than a
+ * small budget. The files are deleted when the
+ * queue is closed or the JVM exits. I/O errors are thrown as
+ * UncheckedIOException since the DEPQ methods cannot throw IOException. This
+ * class is not thread-safe.
+ *
+ * @author Darren White
+ */
+public class ExternalDEPQ<E> implements DEPQ<E>, AutoCloseable {
+
+	/**
+	 * The size of the blocks runs are read and written in
+	 */
+	public static final int BLOCK_BYTES = 1 << 16;
+
+	/**
+	 * The most runs there can be before the smaller half of them are merged
+	 */
+	public static final int MAX_RUNS = 16;
+
+	/**
+	 * The elements kept in memory
+	 */
+	private final Daw48DEPQ<E> heap;
+
+	/**
+	 * The largest number of elements in the heap
+	 */
+	private final int memoryBudget;
+
+	/**
+	 * Orders the elements across the heap and the runs
+	 */
+	private final Comparator<? super E> order;
+
+	/**
+	 * The directory the runs are written to
+	 */
+	private final Path directory;
+
+	/**
+	 * Writes the elements to the runs
+	 */
+	private final Encoder<? super E> encoder;
+
+	/**
+	 * Reads the elements from the runs
+	 */
+	private final Decoder<? extends E> decoder;
+
+	/**
+	 * The runs which still have elements
+	 */
+	private final List<Run> runs = new ArrayList<>();
+
+	/**
+	 * Used to read every block from the runs
+	 */
+	private final ByteBuffer readBuffer = ByteBuffer.allocate(BLOCK_BYTES);
+
+	/**
+	 * Used to write every block to the runs
+	 */
+	private final ByteBuffer writeBuffer = ByteBuffer.allocate(BLOCK_BYTES);
+
+	/**
+	 * Holds the bytes of each element while it is encoded
+	 */
+	private final EncodedBytes bytes = new EncodedBytes();
+
+	/**
+	 * Encodes into bytes
+	 */
+	private final DataOutputStream out = new DataOutputStream(bytes);
+
+	/**
+	 * Number of elements in the queue, in memory and in the runs
+	 */
+	private long numElements = 0;
+
+	/**
+	 * If the queue has been closed
+	 */
+	private boolean closed = false;
+
+	/**
+	 * Creates a new empty ExternalDEPQ which orders elements by their
+	 * natural ordering
+	 *
+	 * @param memoryBudget the largest number of elements to keep in the heap,
+	 *                     at least 16, the runs use memory as well
+	 * @param directory    the directory to write the runs to
+	 * @param encoder      writes an element to a run
+	 * @param decoder      reads an element from a run
+	 */
+	public ExternalDEPQ(int memoryBudget, Path directory, Encoder<? super E> encoder, Decoder<? extends E> decoder) {
+		this(memoryBudget, directory, encoder, decoder, null);
+	}
+
+	/**
+	 * Creates a new empty ExternalDEPQ which orders elements using a comparator
+	 *
+	 * @param memoryBudget the largest number of elements to keep in the heap,
+	 *                     at least 16, the runs use memory as well
+	 * @param directory    the directory to write the runs to
+	 * @param encoder      writes an element to a run
+	 * @param decoder      reads an element from a run
+	 * @param comparator   the comparator used to order the elements,
+	 *                     or null to use the natural ordering
+	 */
+	@SuppressWarnings("unchecked")
+	public ExternalDEPQ(int memoryBudget, Path directory, Encoder<? super E> encoder, Decoder<? extends E> decoder,
+						Comparator<? super E> comparator) {
+		if (memoryBudget < 16) {
+			throw new IllegalArgumentException("Memory budget must be at least 16: " + memoryBudget);
+		}
+
+		this.memoryBudget = memoryBudget;
+		this.directory = Objects.requireNonNull(directory, "Directory must not be null");
+		this.encoder = Objects.requireNonNull(encoder, "Encoder must not be null");
+		this.decoder = Objects.requireNonNull(decoder, "Decoder must not be null");
+
+		heap = comparator != null ? new Daw48DEPQ<>(comparator) : new Daw48DEPQ<>();
+		order = comparator != null ? comparator
+				: (a, b) -> ((Comparable<? super E>) a).compareTo(b);
+	}
+
+	/**
+	 * Adds an element to the heap, spilling the middle of the heap to a run
+	 * first if it is full. No null elements can be added and will throw a
+	 * NullPointerException.
+	 *
+	 * @param c the element to insert into the DEPQ
+	 * @throws UncheckedIOException if a run cannot be written
+	 */
+	@Override
+	public void add(E c) {
+		// Don't add a null value
+		// throw an npe instead
+		if (c == null) {
+			throw new NullPointerException("Null values not allowed in DEPQ");
+		}
+
+		ensureOpen();
+
+		try {
+			if (heap.size() == memoryBudget) {
+				spill();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		heap.add(c);
+		numElements++;
+	}
+
+	/**
+	 * Removes the smallest element, from the heap or from the front of a run
+	 *
+	 * @return returns the smallest element in the DEPQ or null if it is empty
+	 * @throws UncheckedIOException if a run cannot be read
+	 */
+	@Override
+	public E getLeast() {
+		return remove(true);
+	}
+
+	/**
+	 * Removes the largest element, from the heap or from the back of a run
+	 *
+	 * @return returns the largest element in the DEPQ or null if it is empty
+	 * @throws UncheckedIOException if a run cannot be read
+	 */
+	@Override
+	public E getMost() {
+		return remove(false);
+	}
+
+	/**
+	 * Gets the smallest element without removing it
+	 *
+	 * @return returns the smallest element in the DEPQ or null if it is empty
+	 * @throws UncheckedIOException if a run cannot be read
+	 */
+	@Override
+	public E inspectLeast() {
+		Run run = best(true);
+
+		return run != null ? run.peek(true) : heap.inspectLeast();
+	}
+
+	/**
+	 * Gets the largest element without removing it
+	 *
+	 * @return returns the largest element in the DEPQ or null if it is empty
+	 * @throws UncheckedIOException if a run cannot be read
+	 */
+	@Override
+	public E inspectMost() {
+		Run run = best(false);
+
+		return run != null ? run.peek(false) : heap.inspectMost();
+	}
+
+	/**
+	 * Checks if the queue is empty
+	 *
+	 * @return returns true if the queue is empty
+	 */
+	@Override
+	public boolean isEmpty() {
+		return numElements == 0;
+	}
+
+	/**
+	 * Gets the number of elements in the queue, in memory and in the runs
+	 *
+	 * @return returns the number of elements, or Integer.MAX_VALUE if
+	 * there are more than that
+	 */
+	@Override
+	public int size() {
+		return (int) Math.min(numElements, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Gets the number of elements in the queue
+	 *
+	 * @return returns the number of elements, which may be more than fit in an int
+	 */
+	public long longSize() {
+		return numElements;
+	}
+
+	/**
+	 * Closes and deletes every run, the queue cannot be used afterwards
+	 *
+	 * @throws IOException if a run cannot be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+
+		closed = true;
+		IOException error = null;
+
+		// Try to close every run even if one fails
+		for (Run run : runs) {
+			try {
+				run.channel.close();
+			} catch (IOException e) {
+				error = e;
+			}
+		}
+
+		runs.clear();
+
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	/**
+	 * Removes the smallest or largest element
+	 *
+	 * @param least true to remove the smallest, false for the largest
+	 * @return returns the element or null if the DEPQ is empty
+	 */
+	private E remove(boolean least) {
+		if (numElements == 0) {
+			return null;
+		}
+
+		Run run = best(least);
+		E c;
+
+		if (run == null) {
+			c = least ? heap.getLeast() : heap.getMost();
+		} else {
+			c = run.poll(least);
+
+			if (run.remaining == 0) {
+				closeRun(run);
+			}
+		}
+
+		numElements--;
+
+		return c;
+	}
+
+	/**
+	 * Finds the run whose front or back is better than the same end of
+	 * the heap and of every other run
+	 *
+	 * @param least true to compare the smallest elements, false for the largest
+	 * @return returns the best run or null if the heap is best
+	 */
+	private Run best(boolean least) {
+		ensureOpen();
+
+		Run best = null;
+		E c = least ? heap.inspectLeast() : heap.inspectMost();
+
+		for (Run run : runs) {
+			E head = run.peek(least);
+
+			if (c == null || (least ? order.compare(head, c) < 0 : order.compare(head, c) > 0)) {
+				best = run;
+				c = head;
+			}
+		}
+
+		return best;
+	}
+
+	/**
+	 * Writes the middle half of the heap to a new run, keeping the smallest and
+	 * largest quarters in the heap. If there are then too many runs they are
+	 * merged into one.
+	 *
+	 * @throws IOException if the run cannot be written
+	 */
+	private void spill() throws IOException {
+		RunWriter writer = new RunWriter();
+		int n = heap.size();
+		int keep = n >> 2;
+		Object[] sorted = new Object[n];
+		boolean written = false;
+
+		for (int i = 0; i < n; i++) {
+			sorted[i] = heap.getLeast();
+		}
+
+		try {
+			for (int i = keep; i < n - keep; i++) {
+				writer.write(elementAt(sorted, i));
+			}
+
+			runs.add(writer.finish());
+			written = true;
+		} finally {
+			if (!written) {
+				// Deletes the file
+				writer.channel.close();
+			}
+
+			// Put the ends back, and the middle as well if the
+			// run could not be written, so no elements are lost
+			List<E> kept = new ArrayList<>(written ? keep << 1 : n);
+
+			for (int i = 0; i < n; i++) {
+				if (!written || i < keep || i >= n - keep) {
+					kept.add(elementAt(sorted, i));
+				}
+			}
+
+			heap.addAll(kept);
+		}
+
+		if (runs.size() > MAX_RUNS) {
+			merge();
+		}
+	}
+
+	/**
+	 * Merges the smaller half of the runs into one new run. The runs are read
+	 * through copies so they are not changed until the new run has been
+	 * written, if anything fails they are all kept and nothing is lost.
+	 *
+	 * @throws IOException if the runs cannot be read or the new run written
+	 */
+	private void merge() throws IOException {
+		runs.sort(Comparator.comparingLong(run -> run.remaining));
+
+		List<Run> sources = new ArrayList<>(runs.subList(0, MAX_RUNS >> 1));
+		List<Run> merging = new ArrayList<>(sources.size());
+		RunWriter writer = new RunWriter();
+		Run merged;
+
+		for (Run run : sources) {
+			merging.add(new Run(run));
+		}
+
+		try {
+			while (true) {
+				Run best = null;
+				E c = null;
+
+				// Take the smallest front of all the runs
+				for (Run run : merging) {
+					if (run.remaining > 0) {
+						E head = run.peek(true);
+
+						if (c == null || order.compare(head, c) < 0) {
+							best = run;
+							c = head;
+						}
+					}
+				}
+
+				if (best == null) {
+					break;
+				}
+
+				writer.write(best.poll(true));
+			}
+
+			merged = writer.finish();
+		} catch (IOException | RuntimeException e) {
+			// Deletes the new file, the runs are unchanged
+			writer.channel.close();
+			throw e;
+		}
+
+		runs.removeAll(sources);
+		runs.add(merged);
+		IOException error = null;
+
+		// The elements are safe in the new run, so the old
+		// files can go even if one of them fails to close
+		for (Run run : sources) {
+			try {
+				run.channel.close();
+			} catch (IOException e) {
+				error = e;
+			}
+		}
+
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	/**
+	 * Closes a run which has no elements left and forgets it
+	 *
+	 * @param run the run
+	 */
+	private void closeRun(Run run) {
+		runs.remove(run);
+
+		try {
+			run.channel.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Throws an IllegalStateException if the queue has been closed
+	 */
+	private void ensureOpen() {
+		if (closed) {
+			throw new IllegalStateException("DEPQ is closed");
+		}
+	}
+
+	/**
+	 * Decodes one element from a block
+	 *
+	 * @param buffer the block, which must have an array
+	 * @param offset the offset of the encoded element in the block
+	 * @param length the length of the encoded element
+	 * @return returns the element
+	 * @throws IOException if the element cannot be decoded
+	 */
+	private E decode(ByteBuffer buffer, int offset, int length) throws IOException {
+		E c = decoder.decode(new DataInputStream(new ByteArrayInputStream(buffer.array(), offset, length)));
+
+		if (c == null) {
+			throw new IOException("Decoder returned null");
+		}
+
+		return c;
+	}
+
+	/**
+	 * Reads bytes from a file into the start of a buffer
+	 *
+	 * @param channel  the file
+	 * @param buffer   the buffer, which is cleared first
+	 * @param position the position in the file to read from
+	 * @param length   the number of bytes to read
+	 * @return returns the buffer, holding the bytes from 0 to length
+	 * @throws IOException if the bytes cannot be read
+	 */
+	private static ByteBuffer read(FileChannel channel, ByteBuffer buffer, long position, int length)
+			throws IOException {
+		ByteBuffer b = length <= buffer.capacity() ? buffer : ByteBuffer.allocate(length);
+
+		((Buffer) b).clear().limit(length);
+
+		while (b.hasRemaining()) {
+			if (channel.read(b, position + b.position()) < 0) {
+				throw new EOFException("Run ended early");
+			}
+		}
+
+		return b;
+	}
+
+	/**
+	 * Gets an element of an Object array
+	 *
+	 * @param array the array
+	 * @param index the index of the element
+	 * @return returns the element
+	 */
+	@SuppressWarnings("unchecked")
+	private E elementAt(Object[] array, int index) {
+		return (E) array[index];
+	}
+
+	/**
+	 * Writes a run of elements in ascending order to a new file
+	 */
+	private final class RunWriter {
+
+		/**
+		 * The file being written
+		 */
+		final FileChannel channel;
+
+		/**
+		 * The number of elements written
+		 */
+		long count = 0;
+
+		/**
+		 * Create a new file in the directory, which is deleted when it is closed
+		 *
+		 * @throws IOException if the file cannot be created
+		 */
+		RunWriter() throws IOException {
+			Path file = Files.createTempFile(directory, "depq-", ".run");
+
+			channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+					StandardOpenOption.DELETE_ON_CLOSE);
+			((Buffer) writeBuffer).clear();
+		}
+
+		/**
+		 * Writes an element framed by its length on both sides
+		 *
+		 * @param c the element
+		 * @throws IOException if the element cannot be written
+		 */
+		void write(E c) throws IOException {
+			bytes.reset();
+			encoder.encode(c, out);
+			out.flush();
+
+			int length = bytes.size();
+
+			if (writeBuffer.remaining() < length + 8) {
+				flush();
+			}
+
+			// An element larger than a block is written on its own
+			ByteBuffer b = length + 8 <= writeBuffer.capacity() ? writeBuffer : ByteBuffer.allocate(length + 8);
+
+			b.putInt(length).put(bytes.array(), 0, length).putInt(length);
+
+			if (b != writeBuffer) {
+				((Buffer) b).flip();
+				writeFully(b);
+			}
+
+			count++;
+		}
+
+		/**
+		 * Writes the rest of the block and gets the run to read it back
+		 *
+		 * @return returns the run
+		 * @throws IOException if the block cannot be written
+		 */
+		Run finish() throws IOException {
+			flush();
+
+			return new Run(channel, channel.position(), count);
+		}
+
+		/**
+		 * Writes the buffered block to the file
+		 *
+		 * @throws IOException if the block cannot be written
+		 */
+		private void flush() throws IOException {
+			((Buffer) writeBuffer).flip();
+			writeFully(writeBuffer);
+			((Buffer) writeBuffer).clear();
+		}
+
+		/**
+		 * Writes everything remaining in a buffer
+		 *
+		 * @param b the bytes to write
+		 * @throws IOException if the bytes cannot be written
+		 */
+		private void writeFully(ByteBuffer b) throws IOException {
+			while (b.hasRemaining()) {
+				channel.write(b);
+			}
+		}
+	}
+
+	/**
+	 * A sorted run in a file which is read from both ends. The bytes from
+	 * frontPosition to backPosition have not been read yet, the elements
+	 * before them are in front and the elements after them are in back.
+	 */
+	private final class Run {
+
+		/**
+		 * The file holding the run
+		 */
+		final FileChannel channel;
+
+		/**
+		 * The position of the first byte not read from the front
+		 */
+		long frontPosition = 0;
+
+		/**
+		 * The position after the last byte not read from the back
+		 */
+		long backPosition;
+
+		/**
+		 * The number of elements which have not been removed
+		 */
+		long remaining;
+
+		/**
+		 * Elements read from the front, smallest first
+		 */
+		final ArrayDeque<E> front = new ArrayDeque<>();
+
+		/**
+		 * Elements read from the back, largest first
+		 */
+		final ArrayDeque<E> back = new ArrayDeque<>();
+
+		/**
+		 * Create a new run
+		 *
+		 * @param channel the file holding the run
+		 * @param length  the length of the file
+		 * @param count   the number of elements in the run
+		 */
+		Run(FileChannel channel, long length, long count) {
+			this.channel = channel;
+			this.backPosition = length;
+			this.remaining = count;
+		}
+
+		/**
+		 * Create a copy of the elements left in another run, which reads
+		 * the same file without changing the other run
+		 *
+		 * @param run the run to copy
+		 */
+		Run(Run run) {
+			channel = run.channel;
+			frontPosition = run.frontPosition;
+			backPosition = run.backPosition;
+			remaining = run.remaining;
+			front.addAll(run.front);
+			back.addAll(run.back);
+		}
+
+		/**
+		 * Gets the smallest or largest element left, reading
+		 * another block if needed
+		 *
+		 * @param least true for the smallest, false for the largest
+		 * @return returns the element
+		 * @throws UncheckedIOException if the run cannot be read
+		 */
+		E peek(boolean least) {
+			ArrayDeque<E> near = least ? front : back;
+
+			if (near.isEmpty()) {
+				try {
+					if (least) {
+						readFront();
+					} else {
+						readBack();
+					}
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+
+			// Once the ends meet the rest are all at the far end
+			return !near.isEmpty() ? near.peekFirst() : (least ? back : front).peekLast();
+		}
+
+		/**
+		 * Removes the smallest or largest element left
+		 *
+		 * @param least true for the smallest, false for the largest
+		 * @return returns the element
+		 * @throws UncheckedIOException if the run cannot be read
+		 */
+		E poll(boolean least) {
+			E c = peek(least);
+			ArrayDeque<E> near = least ? front : back;
+
+			if (!near.isEmpty()) {
+				near.pollFirst();
+			} else {
+				(least ? back : front).pollLast();
+			}
+
+			remaining--;
+
+			return c;
+		}
+
+		/**
+		 * Reads the next block from the front, decoding every whole element in it
+		 *
+		 * @throws IOException if the block cannot be read
+		 */
+		private void readFront() throws IOException {
+			long left = backPosition - frontPosition;
+
+			if (left == 0) {
+				return;
+			}
+
+			ByteBuffer b = read(channel, readBuffer, frontPosition, (int) Math.min(BLOCK_BYTES, left));
+			int position = 0;
+
+			// Stop at an element which is cut off by the end of the block
+			while (position + 4 <= b.limit() && position + b.getInt(position) + 8 <= b.limit()) {
+				int length = b.getInt(position);
+
+				front.add(decode(b, position + 4, length));
+				position += length + 8;
+			}
+
+			// An element larger than a block is read on its own
+			if (position == 0) {
+				int length = b.getInt(0);
+
+				b = read(channel, readBuffer, frontPosition, length + 8);
+				front.add(decode(b, 4, length));
+				position = length + 8;
+			}
+
+			frontPosition += position;
+		}
+
+		/**
+		 * Reads the next block from the back, decoding every whole element in it
+		 *
+		 * @throws IOException if the block cannot be read
+		 */
+		private void readBack() throws IOException {
+			long left = backPosition - frontPosition;
+
+			if (left == 0) {
+				return;
+			}
+
+			int blockLength = (int) Math.min(BLOCK_BYTES, left);
+			ByteBuffer b = read(channel, readBuffer, backPosition - blockLength, blockLength);
+			int end = blockLength;
+
+			// Stop at an element which is cut off by the start of the block
+			while (end >= 4 && end - b.getInt(end - 4) - 8 >= 0) {
+				int length = b.getInt(end - 4);
+
+				back.add(decode(b, end - 4 - length, length));
+				end -= length + 8;
+			}
+
+			// An element larger than a block is read on its own
+			if (end == blockLength) {
+				int length = b.getInt(end - 4);
+
+				b = read(channel, readBuffer, backPosition - length - 8, length + 8);
+				back.add(decode(b, 4, length));
+				end -= length + 8;
+			}
+
+			backPosition -= blockLength - end;
+		}
+	}
+
+	/**
+	 * A ByteArrayOutputStream whose bytes can be read without copying them
+	 */
+	private static final class EncodedBytes extends ByteArrayOutputStream {
+
+		/**
+		 * Gets the array holding the bytes, the first size() bytes are valid
+		 *
+		 * @return returns the array
+		 */
+		byte[] array() {
+			return buf;
+		}
+	}
+}
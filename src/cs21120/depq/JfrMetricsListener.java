@@ -0,0 +1,91 @@
+package cs21120.depq;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Turns the DEPQ metrics into JFR events, see DEPQMetrics. This class is only
+ * loaded if the JVM has JFR, and the events are only created while a JFR
+ * recording is running.
+ *
+ * @author Darren White
+ */
+final class JfrMetricsListener implements DEPQMetricsListener {
+
+	@Override
+	public void operation(DEPQMetrics.Operation operation, long nanos, int comparisons, int swaps, int siftDepth) {
+		OperationEvent event = new OperationEvent();
+
+		if (event.isEnabled()) {
+			event.operation = operation.name();
+			event.latency = nanos;
+			event.comparisons = comparisons;
+			event.swaps = swaps;
+			event.siftDepth = siftDepth;
+			event.commit();
+		}
+	}
+
+	@Override
+	public void resized(int oldLength, int newLength, long bytesCopied) {
+		ResizeEvent event = new ResizeEvent();
+
+		if (event.isEnabled()) {
+			event.oldLength = oldLength;
+			event.newLength = newLength;
+			event.bytesCopied = bytesCopied;
+			event.commit();
+		}
+	}
+
+	/**
+	 * An add, getLeast, getMost, offerBounded or rebuild of a queue
+	 */
+	@Name("cs21120.depq.Operation")
+	@Label("DEPQ Operation")
+	@Category("DEPQ")
+	@Description("An operation on a Daw48DEPQ")
+	static final class OperationEvent extends Event {
+
+		@Label("Operation")
+		String operation;
+
+		@Label("Latency")
+		@Timespan(Timespan.NANOSECONDS)
+		long latency;
+
+		@Label("Comparisons")
+		int comparisons;
+
+		@Label("Swaps")
+		int swaps;
+
+		@Label("Sift Depth")
+		int siftDepth;
+	}
+
+	/**
+	 * An expansion of the array of a queue
+	 */
+	@Name("cs21120.depq.Resize")
+	@Label("DEPQ Resize")
+	@Category("DEPQ")
+	@Description("An expansion of the array of a Daw48DEPQ")
+	static final class ResizeEvent extends Event {
+
+		@Label("Old Length")
+		int oldLength;
+
+		@Label("New Length")
+		int newLength;
+
+		@Label("Bytes Copied")
+		@DataAmount
+		long bytesCopied;
+	}
+}
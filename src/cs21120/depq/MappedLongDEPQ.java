@@ -0,0 +1,338 @@
+package cs21120.depq;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An interval heap of fixed-width records which lives in a memory-mapped file,
+ * so the queue survives restarts and reopening it is O(1) instead of adding
+ * every record again. Each record is a 64-bit priority which orders the queue
+ * and a 64-bit payload which is carried along with it, see
+ * AbstractLongRecordDEPQ. Adding and removing write straight into the mapping.
+ * <p>
+ * The file starts with a small header holding a magic number, the number of
+ * records and whether the file was closed cleanly. The records follow the
+ * header. The file grows in chunks: it doubles until the records take 64MB
+ * and then grows by 64MB at a time.
+ * <p>
+ * The operating system writes the changes back to the file in its own time,
+ * so they are kept if the process dies. The ForcePolicy decides how often
+ * they are forced onto the disk as well, which keeps them if the machine
+ * crashes. Either way force() can be called at any time. The header is marked
+ * as dirty (and forced) before the first change after the file was opened or
+ * forced, and marked as clean again once the records are forced.
+ * <p>
+ * When a dirty file is opened, the number of records is checked against the
+ * size of the file and the records are checked to be a valid interval heap.
+ * If they are not, the heap is rebuilt with heapify(), so the queue can
+ * always be used again, but its records are only exact as of the last force.
+ * Adding and removing shift records along a path of the heap, each one
+ * written over the slot of the one before it, and the number of records in
+ * the header is only written once the operation has finished. If the process
+ * dies in the middle of an add or remove, one record on that path may have
+ * been overwritten by a copy of another, so one existing record can be lost
+ * and another duplicated, and the record being added or removed may be
+ * missing or still there. If the machine crashes, the changes since the last
+ * force may only be partly on the disk, so any record changed since then can
+ * be lost, duplicated or come back with an older value.
+ * <p>
+ * The file is locked while it is open so only one queue can use it at a time.
+ * This class is not thread-safe.
+ *
+ * @author Darren White
+ */
+public class MappedLongDEPQ extends AbstractLongRecordDEPQ {
+
+	/**
+	 * Identifies a file written by this class
+	 */
+	private static final long MAGIC = 0x4445505148454150L;
+
+	/**
+	 * The number of bytes before the first record
+	 */
+	static final int HEADER_BYTES = 64;
+
+	/**
+	 * The offset of the clean/dirty state in the header
+	 */
+	static final int STATE_OFFSET = 8;
+
+	/**
+	 * The offset of the number of records in the header
+	 */
+	private static final int SIZE_OFFSET = 12;
+
+	/**
+	 * The state of a file which has been closed or forced
+	 */
+	private static final int CLEAN = 0;
+
+	/**
+	 * The state of a file which may have unforced changes
+	 */
+	static final int DIRTY = 1;
+
+	/**
+	 * The number of records the file first holds
+	 */
+	private static final int INITIAL_CAPACITY = 1024;
+
+	/**
+	 * When the changes are forced onto the disk
+	 */
+	public enum ForcePolicy {
+		/**
+		 * Only when force() or close() is called
+		 */
+		ON_CLOSE,
+
+		/**
+		 * After every add and remove, which is much slower
+		 */
+		EVERY_OPERATION
+	}
+
+	/**
+	 * The open file
+	 */
+	private final FileChannel channel;
+
+	/**
+	 * The lock stopping anyone else using the file
+	 */
+	private final FileLock lock;
+
+	/**
+	 * The mapping of the header
+	 */
+	private final MappedByteBuffer header;
+
+	/**
+	 * When the changes are forced onto the disk
+	 */
+	private final ForcePolicy forcePolicy;
+
+	/**
+	 * If the header is marked as dirty
+	 */
+	private boolean dirty;
+
+	/**
+	 * Opens the queue in a file, creating it if it does not exist.
+	 * The changes are only forced onto the disk when closed.
+	 *
+	 * @param path the file
+	 * @throws IOException if the file cannot be opened or is not a DEPQ file
+	 */
+	public MappedLongDEPQ(Path path) throws IOException {
+		this(path, ForcePolicy.ON_CLOSE);
+	}
+
+	/**
+	 * Opens the queue in a file, creating it if it does not exist
+	 *
+	 * @param path        the file
+	 * @param forcePolicy when the changes are forced onto the disk
+	 * @throws IOException if the file cannot be opened or is not a DEPQ file
+	 */
+	public MappedLongDEPQ(Path path, ForcePolicy forcePolicy) throws IOException {
+		if (forcePolicy == null) {
+			throw new NullPointerException("Null force policy");
+		}
+
+		this.forcePolicy = forcePolicy;
+
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+		try {
+			lock = lock(channel);
+
+			long fileSize = channel.size();
+			header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+			header.order(ByteOrder.LITTLE_ENDIAN);
+
+			if (fileSize == 0) {
+				// A new file
+				header.putLong(0, MAGIC);
+				header.putInt(STATE_OFFSET, CLEAN);
+				header.putInt(SIZE_OFFSET, 0);
+				ensureCapacity(INITIAL_CAPACITY);
+				header.force();
+			} else {
+				open(fileSize);
+			}
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Locks the file
+	 *
+	 * @param channel the open file
+	 * @return returns the lock
+	 * @throws IOException if the file is already locked
+	 */
+	private static FileLock lock(FileChannel channel) throws IOException {
+		FileLock lock;
+
+		try {
+			lock = channel.tryLock();
+		} catch (OverlappingFileLockException e) {
+			lock = null;
+		}
+
+		if (lock == null) {
+			throw new IOException("DEPQ file is already open");
+		}
+
+		return lock;
+	}
+
+	/**
+	 * Maps the records of an existing file and checks them if
+	 * the file was not closed cleanly
+	 *
+	 * @param fileSize the size of the file
+	 * @throws IOException if the file is not a DEPQ file
+	 */
+	private void open(long fileSize) throws IOException {
+		if (fileSize < HEADER_BYTES || header.getLong(0) != MAGIC) {
+			throw new IOException("Not a DEPQ file");
+		}
+
+		long records = (fileSize - HEADER_BYTES) / RECORD_BYTES;
+		int size = header.getInt(SIZE_OFFSET);
+		dirty = header.getInt(STATE_OFFSET) != CLEAN;
+
+		if (size < 0 || size > records) {
+			throw new IOException("DEPQ file is corrupt, it holds " + records + " records but has a size of " + size);
+		}
+
+		ensureCapacity((int) Math.max(Math.min(records, Integer.MAX_VALUE), INITIAL_CAPACITY));
+		numElements = size;
+
+		if (dirty) {
+			// Fix the heap if a change was interrupted
+			if (!isHeap()) {
+				heapify();
+			}
+
+			force();
+		}
+	}
+
+	/**
+	 * Maps the part of the file holding a segment. The mapping of a smaller
+	 * first segment is replaced, the records are already in the file.
+	 *
+	 * @param index   the index of the segment
+	 * @param old     the segment being replaced, or null if it is new
+	 * @param records the number of records the segment must hold
+	 * @return returns the new segment
+	 */
+	@Override
+	ByteBuffer newSegment(int index, ByteBuffer old, int records) {
+		long position = HEADER_BYTES + ((long) index << SEGMENT_SHIFT) * RECORD_BYTES;
+		ByteBuffer segment;
+
+		try {
+			// Mapping past the end of the file grows it
+			segment = channel.map(FileChannel.MapMode.READ_WRITE, position, (long) records * RECORD_BYTES);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		if (old != null) {
+			DirectBuffers.free(old);
+		}
+
+		return segment.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Marks the header as dirty before the first change since it was clean
+	 */
+	@Override
+	void beforeUpdate() {
+		if (!dirty) {
+			header.putInt(STATE_OFFSET, DIRTY);
+			header.force();
+			dirty = true;
+		}
+	}
+
+	/**
+	 * Records the number of records in the header
+	 */
+	@Override
+	void afterUpdate() {
+		header.putInt(SIZE_OFFSET, numElements);
+
+		if (forcePolicy == ForcePolicy.EVERY_OPERATION) {
+			force();
+		}
+	}
+
+	/**
+	 * Forces the records and the header onto the disk
+	 * and marks the header as clean
+	 */
+	public void force() {
+		ensureOpen();
+
+		if (!dirty) {
+			return;
+		}
+
+		for (ByteBuffer segment : segments) {
+			((MappedByteBuffer) segment).force();
+		}
+
+		header.putInt(STATE_OFFSET, CLEAN);
+		header.force();
+		dirty = false;
+	}
+
+	/**
+	 * Forces the changes onto the disk, unmaps the file and closes it.
+	 * The queue cannot be used afterwards, closing it again does nothing.
+	 *
+	 * @throws IOException if the file cannot be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		if (segments == null) {
+			return;
+		}
+
+		try {
+			force();
+		} finally {
+			for (ByteBuffer segment : segments) {
+				DirectBuffers.free(segment);
+			}
+
+			DirectBuffers.free(header);
+			segments = null;
+			capacity = 0;
+			numElements = 0;
+
+			try {
+				lock.release();
+			} finally {
+				channel.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package cs21120.depq;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the totals and histograms of the DEPQ metrics for JMX, see
+ * DEPQMetrics. The counters are LongAdders and AtomicLongArrays so any
+ * number of threads can record at once.
+ *
+ * @author Darren White
+ */
+final class MetricsRecorder implements DEPQMetricsListener, DEPQMetricsMXBean {
+
+	/**
+	 * The name the MXBean is registered under
+	 */
+	static final String NAME = "cs21120.depq:type=DEPQMetrics";
+
+	/**
+	 * The number of buckets in each histogram, one for each bit of a long
+	 */
+	private static final int BUCKETS = 65;
+
+	/**
+	 * The metrics of each operation, indexed by ordinal
+	 */
+	private final OperationMetrics[] operations = new OperationMetrics[DEPQMetrics.Operation.values().length];
+
+	/**
+	 * The number of array resizes
+	 */
+	private final LongAdder resizes = new LongAdder();
+
+	/**
+	 * The number of bytes copied by resizes
+	 */
+	private final LongAdder bytesCopied = new LongAdder();
+
+	MetricsRecorder() {
+		for (int i = 0; i < operations.length; i++) {
+			operations[i] = new OperationMetrics();
+		}
+	}
+
+	/**
+	 * Registers this with the platform MBean server, does nothing
+	 * if JMX is not available
+	 */
+	void register() {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(NAME));
+		} catch (JMException | SecurityException e) {
+			// Already registered or no JMX
+		}
+	}
+
+	@Override
+	public void operation(DEPQMetrics.Operation operation, long nanos, int comparisons, int swaps, int siftDepth) {
+		OperationMetrics metrics = operations[operation.ordinal()];
+
+		metrics.count.increment();
+		metrics.comparisons.add(comparisons);
+		metrics.swaps.add(swaps);
+		metrics.latency.incrementAndGet(bucket(nanos));
+		metrics.siftDepth.incrementAndGet(bucket(siftDepth));
+	}
+
+	@Override
+	public void resized(int oldLength, int newLength, long bytesCopied) {
+		resizes.increment();
+		this.bytesCopied.add(bytesCopied);
+	}
+
+	@Override
+	public long getCount(String operation) {
+		return get(operation).count.sum();
+	}
+
+	@Override
+	public double getAverageComparisons(String operation) {
+		OperationMetrics metrics = get(operation);
+		long count = metrics.count.sum();
+
+		return count > 0 ? (double) metrics.comparisons.sum() / count : 0;
+	}
+
+	@Override
+	public double getAverageSwaps(String operation) {
+		OperationMetrics metrics = get(operation);
+		long count = metrics.count.sum();
+
+		return count > 0 ? (double) metrics.swaps.sum() / count : 0;
+	}
+
+	@Override
+	public long[] getLatencyHistogram(String operation) {
+		return toArray(get(operation).latency);
+	}
+
+	@Override
+	public long[] getSiftDepthHistogram(String operation) {
+		return toArray(get(operation).siftDepth);
+	}
+
+	@Override
+	public long getResizes() {
+		return resizes.sum();
+	}
+
+	@Override
+	public long getBytesCopied() {
+		return bytesCopied.sum();
+	}
+
+	@Override
+	public void reset() {
+		for (int i = 0; i < operations.length; i++) {
+			operations[i] = new OperationMetrics();
+		}
+
+		resizes.reset();
+		bytesCopied.reset();
+	}
+
+	/**
+	 * Gets the metrics of an operation by name
+	 *
+	 * @param operation the name of the operation
+	 * @return returns the metrics
+	 * @throws IllegalArgumentException if there is no such operation
+	 */
+	private OperationMetrics get(String operation) {
+		return operations[DEPQMetrics.Operation.valueOf(operation).ordinal()];
+	}
+
+	/**
+	 * Gets the histogram bucket of a value, which is the number of bits needed
+	 * to hold it
+	 *
+	 * @param value the value, negative values count as 0
+	 * @return returns the bucket
+	 */
+	private static int bucket(long value) {
+		return value <= 0 ? 0 : Long.SIZE - Long.numberOfLeadingZeros(value);
+	}
+
+	/**
+	 * Copies a histogram into an array
+	 *
+	 * @param histogram the histogram
+	 * @return returns the count in each bucket
+	 */
+	private static long[] toArray(AtomicLongArray histogram) {
+		long[] counts = new long[histogram.length()];
+
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = histogram.get(i);
+		}
+
+		return counts;
+	}
+
+	/**
+	 * The metrics of one operation
+	 */
+	private static final class OperationMetrics {
+
+		private final LongAdder count = new LongAdder();
+
+		private final LongAdder comparisons = new LongAdder();
+
+		private final LongAdder swaps = new LongAdder();
+
+		private final AtomicLongArray latency = new AtomicLongArray(BUCKETS);
+
+		private final AtomicLongArray siftDepth = new AtomicLongArray(BUCKETS);
+	}
+}
@@ -0,0 +1,362 @@
+package cs21120.depq;
+
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A relaxed thread-safe Double-ended Priority Queue for workloads where an
+ * element close to the smallest or largest is good enough, such as
+ * scheduling. The elements are spread over many Daw48DEPQ shards, each with
+ * its own lock, so threads rarely wait for each other and throughput keeps
+ * growing with the number of threads instead of being limited by one lock.
+ * <p>
+ * add puts the element in a random shard. getLeast picks two random shards
+ * and removes from the one whose smallest element is smaller, and getMost
+ * does the same with the largest elements. The smallest and largest element
+ * of each shard are cached in volatile fields so choosing a shard does not
+ * need its lock. Locks are only ever tried, if a shard is busy another random
+ * shard is chosen, so a thread never waits for another thread.
+ * <p>
+ * The price is that getLeast and getMost do not always return the smallest
+ * and largest element. The rank error is how many elements in the queue are
+ * smaller than the one returned by getLeast (or larger for getMost). The
+ * MultiQueue analyses by Rihani, Sanders and Dementiev and by Alistarh et al.
+ * show that with m shards, elements added to uniformly random shards and
+ * removals using the better of two random shards, the expected rank error is
+ * O(m) and it is O(m log m) with high probability, no matter how large the
+ * queue is. The same argument applies to each end of the queue on its own.
+ * A single removal can still be worse than that, for example when the two
+ * shards chosen happen to be nearly empty, and the bounds are for random
+ * elements, not for elements added in an order which targets the shards.
+ * With the default of two shards per thread the error is a small multiple
+ * of the number of threads.
+ * <p>
+ * getLeast and getMost only return null when every shard looked empty while
+ * looking through them, which may miss an element being added at the same
+ * time. inspectLeast, inspectMost and isEmpty look at the cached values of
+ * every shard without locking, so they are exact when no other thread is
+ * changing the queue, and size may be briefly out of date. add, getLeast and
+ * getMost are O(log(n / m)), the other methods are O(m).
+ *
+ * @author Darren White
+ */
+public class MultiQueueDEPQ<E> implements DEPQ<E> {
+
+	/**
+	 * How many shards there are for each thread by default
+	 */
+	public static final int DEFAULT_SHARDS_PER_THREAD = 2;
+
+	/**
+	 * The shards which hold the elements
+	 */
+	private final Shard<E>[] shards;
+
+	/**
+	 * Orders the elements when choosing between shards
+	 */
+	private final Comparator<? super E> order;
+
+	/**
+	 * The number of elements in the queue
+	 */
+	private final LongAdder numElements = new LongAdder();
+
+	/**
+	 * Creates a new relaxed DEPQ with two shards for each processor which
+	 * orders elements by their natural ordering
+	 */
+	public MultiQueueDEPQ() {
+		this(DEFAULT_SHARDS_PER_THREAD * Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a new relaxed DEPQ which orders elements by their natural
+	 * ordering. The number of shards should be a small multiple of the
+	 * number of threads using the queue.
+	 *
+	 * @param numShards the number of shards
+	 */
+	public MultiQueueDEPQ(int numShards) {
+		this(numShards, null);
+	}
+
+	/**
+	 * Creates a new relaxed DEPQ which orders elements using a comparator.
+	 * The comparator must be safe to use from many threads at once.
+	 *
+	 * @param numShards  the number of shards
+	 * @param comparator the comparator used to order the elements,
+	 *                   or null to use the natural ordering
+	 */
+	@SuppressWarnings("unchecked")
+	public MultiQueueDEPQ(int numShards, Comparator<? super E> comparator) {
+		if (numShards <= 0) {
+			throw new IllegalArgumentException("Number of shards must be positive: " + numShards);
+		}
+
+		order = comparator != null ? comparator
+				: (a, b) -> ((Comparable<? super E>) a).compareTo(b);
+		shards = (Shard<E>[]) new Shard<?>[numShards];
+
+		for (int i = 0; i < numShards; i++) {
+			shards[i] = new Shard<>(comparator != null ? new Daw48DEPQ<>(comparator) : new Daw48DEPQ<>());
+		}
+	}
+
+	/**
+	 * Adds an element to a random shard which is not locked. No null
+	 * elements can be added and will throw a NullPointerException.
+	 *
+	 * @param c the element to insert into the DEPQ
+	 */
+	@Override
+	public void add(E c) {
+		// Don't add a null value
+		// throw an npe instead
+		if (c == null) {
+			throw new NullPointerException("Null values not allowed in DEPQ");
+		}
+
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+
+		while (true) {
+			Shard<E> shard = shards[random.nextInt(shards.length)];
+
+			// Try another shard if this one is busy
+			if (shard.lock.tryLock()) {
+				try {
+					shard.heap.add(c);
+					shard.update();
+				} finally {
+					shard.lock.unlock();
+				}
+
+				numElements.increment();
+
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Removes an element close to the smallest from the better of two
+	 * random shards
+	 *
+	 * @return returns an element close to the smallest or null if the DEPQ is empty
+	 */
+	@Override
+	public E getLeast() {
+		return remove(true);
+	}
+
+	/**
+	 * Removes an element close to the largest from the better of two
+	 * random shards
+	 *
+	 * @return returns an element close to the largest or null if the DEPQ is empty
+	 */
+	@Override
+	public E getMost() {
+		return remove(false);
+	}
+
+	/**
+	 * Removes the smallest or largest element of the better of two random
+	 * shards. If both shards are empty every shard is looked at instead, so
+	 * that null is only returned if the whole queue looked empty.
+	 *
+	 * @param least true to remove from the least end, false for the most end
+	 * @return returns the removed element or null if the DEPQ is empty
+	 */
+	private E remove(boolean least) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+
+		while (true) {
+			Shard<E> shard = better(shards[random.nextInt(shards.length)],
+					shards[random.nextInt(shards.length)], least);
+
+			if (shard == null) {
+				// Both are empty, look for any shard with an element
+				shard = best(least);
+
+				if (shard == null) {
+					return null;
+				}
+			}
+
+			// Try another pair of shards if this one is busy
+			if (shard.lock.tryLock()) {
+				E c;
+
+				try {
+					c = least ? shard.heap.getLeast() : shard.heap.getMost();
+
+					// Another thread emptied it since we looked
+					if (c == null) {
+						continue;
+					}
+
+					shard.update();
+				} finally {
+					shard.lock.unlock();
+				}
+
+				numElements.decrement();
+
+				return c;
+			}
+		}
+	}
+
+	/**
+	 * Chooses the shard with the smaller least element or the larger most
+	 * element, using the cached values
+	 *
+	 * @param a     the first shard
+	 * @param b     the second shard
+	 * @param least true to compare the least elements, false for the most
+	 * @return returns the better shard or null if both are empty
+	 */
+	private Shard<E> better(Shard<E> a, Shard<E> b, boolean least) {
+		E ca = least ? a.least : a.most;
+		E cb = least ? b.least : b.most;
+
+		if (ca == null) {
+			return cb == null ? null : b;
+		}
+
+		if (cb == null) {
+			return a;
+		}
+
+		int cmp = order.compare(ca, cb);
+
+		return (least ? cmp <= 0 : cmp >= 0) ? a : b;
+	}
+
+	/**
+	 * Chooses the shard with the smallest least element or the largest most
+	 * element of all the shards, using the cached values
+	 *
+	 * @param least true to compare the least elements, false for the most
+	 * @return returns the best shard or null if every shard is empty
+	 */
+	private Shard<E> best(boolean least) {
+		Shard<E> best = null;
+
+		for (Shard<E> shard : shards) {
+			best = best == null ? (isEmpty(shard) ? null : shard) : better(best, shard, least);
+		}
+
+		return best;
+	}
+
+	/**
+	 * Checks if a shard is empty using its cached values
+	 *
+	 * @param shard the shard
+	 * @return returns true if the shard has no elements
+	 */
+	private static boolean isEmpty(Shard<?> shard) {
+		return shard.least == null;
+	}
+
+	/**
+	 * Gets the smallest element of all the shards without removing it
+	 *
+	 * @return returns the smallest element in the DEPQ or null if it is empty
+	 */
+	@Override
+	public E inspectLeast() {
+		Shard<E> shard = best(true);
+
+		return shard != null ? shard.least : null;
+	}
+
+	/**
+	 * Gets the largest element of all the shards without removing it
+	 *
+	 * @return returns the largest element in the DEPQ or null if it is empty
+	 */
+	@Override
+	public E inspectMost() {
+		Shard<E> shard = best(false);
+
+		return shard != null ? shard.most : null;
+	}
+
+	/**
+	 * Checks if every shard is empty
+	 *
+	 * @return returns true if the queue is empty
+	 */
+	@Override
+	public boolean isEmpty() {
+		for (Shard<E> shard : shards) {
+			if (!isEmpty(shard)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Gets the number of elements in the DEPQ. This may be briefly out of
+	 * date while other threads are adding or removing elements.
+	 *
+	 * @return returns the number of elements currently in the DEPQ
+	 */
+	@Override
+	public int size() {
+		return (int) Math.max(0, numElements.sum());
+	}
+
+	/**
+	 * A heap and its lock, along with its smallest and largest
+	 * elements which can be read without the lock
+	 */
+	private static final class Shard<E> {
+
+		/**
+		 * Guards the heap
+		 */
+		final ReentrantLock lock = new ReentrantLock();
+
+		/**
+		 * The elements of the shard, only used while holding the lock
+		 */
+		final Daw48DEPQ<E> heap;
+
+		/**
+		 * The smallest element of the heap, null if it is empty
+		 */
+		volatile E least;
+
+		/**
+		 * The largest element of the heap, null if it is empty
+		 */
+		volatile E most;
+
+		/**
+		 * Create a new shard around an empty heap
+		 *
+		 * @param heap the heap to store the elements in
+		 */
+		Shard(Daw48DEPQ<E> heap) {
+			this.heap = heap;
+		}
+
+		/**
+		 * Updates the cached elements after the heap is changed,
+		 * must be called while holding the lock
+		 */
+		void update() {
+			least = heap.inspectLeast();
+			most = heap.inspectMost();
+		}
+	}
+}
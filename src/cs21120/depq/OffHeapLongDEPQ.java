@@ -0,0 +1,91 @@
+package cs21120.depq;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * An interval heap of fixed-width records which is stored off the Java heap in
+ * direct byte buffers, so even a queue of hundreds of millions of records puts
+ * almost no load on the garbage collector. Each record is a 64-bit priority
+ * which orders the queue and a 64-bit payload (such as the id of the object
+ * the record stands for) which is carried along with it.
+ * <p>
+ * The layout and the algorithms are the same as in LongDEPQ, see
+ * AbstractLongRecordDEPQ. The records are split over direct buffers of up to
+ * 64MB. While the queue is smaller than one buffer it grows by reallocating
+ * into a buffer twice the size, after that full-size buffers are added so
+ * nothing has to be copied.
+ * <p>
+ * The memory is freed explicitly by close() and the queue cannot be used
+ * afterwards. Adding and removing are O(log n), inspecting is O(1). This class
+ * is not thread-safe.
+ *
+ * @author Darren White
+ */
+public class OffHeapLongDEPQ extends AbstractLongRecordDEPQ {
+
+	/**
+	 * Creates a new empty off-heap DEPQ
+	 */
+	public OffHeapLongDEPQ() {
+		this(1024);
+	}
+
+	/**
+	 * Creates a new empty off-heap DEPQ which can hold the given number
+	 * of records before it needs to grow
+	 *
+	 * @param initialCapacity the initial number of records
+	 */
+	public OffHeapLongDEPQ(int initialCapacity) {
+		if (initialCapacity < 2) {
+			throw new IllegalArgumentException("Initial capacity must be at least 2: " + initialCapacity);
+		}
+
+		ensureCapacity(initialCapacity);
+	}
+
+	/**
+	 * Frees the off-heap memory. The queue cannot be used afterwards,
+	 * closing it again does nothing.
+	 */
+	@Override
+	public void close() {
+		if (segments == null) {
+			return;
+		}
+
+		for (ByteBuffer segment : segments) {
+			DirectBuffers.free(segment);
+		}
+
+		segments = null;
+		capacity = 0;
+		numElements = 0;
+	}
+
+	/**
+	 * Allocates a direct buffer for a segment. A smaller first segment is
+	 * copied into the new buffer and freed.
+	 *
+	 * @param index   the index of the segment
+	 * @param old     the segment being replaced, or null if it is new
+	 * @param records the number of records the segment must hold
+	 * @return returns the new segment
+	 */
+	@Override
+	ByteBuffer newSegment(int index, ByteBuffer old, int records) {
+		ByteBuffer segment = ByteBuffer.allocateDirect(records * RECORD_BYTES).order(ByteOrder.nativeOrder());
+
+		if (old != null) {
+			// Buffer methods are used so this also runs on Java 8
+			((Buffer) old).clear().limit(numElements * RECORD_BYTES);
+			segment.put(old);
+			((Buffer) segment).clear();
+			DirectBuffers.free(old);
+		}
+
+		return segment;
+	}
+}
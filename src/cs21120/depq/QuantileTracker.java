@@ -0,0 +1,345 @@
+package cs21120.depq;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+
+/**
+ * Keeps track of fixed quantiles, such as the median or the 95th and 99th
+ * percentiles, of a stream of samples without sorting them. This is the two
+ * heap running median (a lower queue whose most element is the median and an
+ * upper queue whose least element is just above it) generalised to k
+ * quantiles: the samples are split into k + 1 segments in sorted order, each
+ * held in an interval heap. Every sample in a segment is no larger than every
+ * sample in the next segment, and segment i holds exactly the samples ranked
+ * from the quantile before it up to quantile i. The quantile is then the most
+ * element of its segment. The middle segments need both ends, which is what
+ * an interval heap gives.
+ * <p>
+ * The quantile q of n samples is the sample of rank ceil(q * n) in ascending
+ * order (the nearest-rank method), so the 0.5 quantile of 1, 2, 3, 4 is 2.
+ * <p>
+ * Adding a sample puts it in the first segment whose most element is not
+ * smaller than it, then moves the most element of a segment into the next
+ * one, or the least element of a segment into the one before it, until every
+ * segment has the right size again. Each rank changes by at most one so at
+ * most one element crosses each boundary. This makes adding O(k log n) and
+ * reading a quantile O(1), or O(k) if some quantiles are equal.
+ * <p>
+ * The samples can be kept to a sliding window, either the last windowSize
+ * samples or, with timestamps, the samples newer than a cutoff passed to
+ * evictBefore(long). Evicting a sample removes it from whichever segment it is
+ * in using an AddressableDaw48DEPQ handle, which is also O(k log n). Samples
+ * are remembered in the order they were added so the oldest is always found
+ * first. This class is not thread-safe.
+ *
+ * @author Darren White
+ */
+public class QuantileTracker<E> {
+
+	/**
+	 * The quantiles being tracked, in ascending order
+	 */
+	private final double[] quantiles;
+
+	/**
+	 * The segments of the samples in ascending order, there
+	 * is one more segment than there are quantiles
+	 */
+	private final AddressableDaw48DEPQ<Sample<E>>[] segments;
+
+	/**
+	 * Orders the samples by their values
+	 */
+	private final Comparator<Sample<E>> order;
+
+	/**
+	 * The samples in the order they were added
+	 */
+	private final ArrayDeque<Sample<E>> window = new ArrayDeque<>();
+
+	/**
+	 * The maximum number of samples kept, 0 to keep
+	 * samples until they are evicted
+	 */
+	private final int windowSize;
+
+	/**
+	 * Creates a new tracker which keeps every sample and orders them by
+	 * their natural ordering
+	 *
+	 * @param quantiles the quantiles to track, in ascending order
+	 */
+	public QuantileTracker(double... quantiles) {
+		this(0, null, quantiles);
+	}
+
+	/**
+	 * Creates a new tracker which keeps every sample
+	 *
+	 * @param comparator the comparator used to order the samples,
+	 *                   or null for the natural ordering
+	 * @param quantiles  the quantiles to track, in ascending order
+	 */
+	public QuantileTracker(Comparator<? super E> comparator, double... quantiles) {
+		this(0, comparator, quantiles);
+	}
+
+	/**
+	 * Creates a new tracker which only keeps the most recent samples
+	 *
+	 * @param windowSize the maximum number of samples kept, or 0 to keep
+	 *                   samples until they are evicted by evictBefore(long)
+	 * @param comparator the comparator used to order the samples,
+	 *                   or null for the natural ordering
+	 * @param quantiles  the quantiles to track, in ascending order
+	 */
+	public QuantileTracker(int windowSize, Comparator<? super E> comparator, double... quantiles) {
+		if (windowSize < 0) {
+			throw new IllegalArgumentException("Window size must not be negative: " + windowSize);
+		}
+
+		if (quantiles.length == 0) {
+			throw new IllegalArgumentException("No quantiles given");
+		}
+
+		for (int i = 0; i < quantiles.length; i++) {
+			// Also rejects NaN
+			if (!(quantiles[i] > 0 && quantiles[i] <= 1) || (i > 0 && quantiles[i] < quantiles[i - 1])) {
+				throw new IllegalArgumentException("Quantiles must be ascending and in (0, 1]: " + quantiles[i]);
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		Comparator<? super E> elementOrder = comparator != null ? comparator
+				: (a, b) -> ((Comparable<? super E>) a).compareTo(b);
+		// Arrays of a generic type can only be created through a wildcard
+		@SuppressWarnings("unchecked")
+		AddressableDaw48DEPQ<Sample<E>>[] segments =
+				(AddressableDaw48DEPQ<Sample<E>>[]) new AddressableDaw48DEPQ<?>[quantiles.length + 1];
+
+		this.windowSize = windowSize;
+		this.quantiles = quantiles.clone();
+		order = (a, b) -> elementOrder.compare(a.element, b.element);
+
+		for (int i = 0; i < segments.length; i++) {
+			segments[i] = new AddressableDaw48DEPQ<>(order);
+		}
+
+		this.segments = segments;
+	}
+
+	/**
+	 * Adds a sample with no timestamp, evicting the oldest sample if
+	 * the window is full
+	 *
+	 * @param c the sample
+	 */
+	public void add(E c) {
+		add(c, 0L);
+	}
+
+	/**
+	 * Adds a sample with a timestamp, evicting the oldest sample if the
+	 * window is full. Timestamps must not go down from one sample to the
+	 * next for evictBefore(long) to work.
+	 *
+	 * @param c         the sample
+	 * @param timestamp the time of the sample, in any unit
+	 */
+	public void add(E c, long timestamp) {
+		// Don't add a null value
+		// throw an npe instead
+		if (c == null) {
+			throw new NullPointerException("Null values not allowed in QuantileTracker");
+		}
+
+		Sample<E> sample = new Sample<>(c, timestamp);
+		int last = segments.length - 1;
+		int i = 0;
+
+		// The first segment whose most element is at least c,
+		// all of the segments before it only have smaller samples
+		while (i < last && (segments[i].isEmpty() || order.compare(segments[i].inspectMost(), sample) < 0)) {
+			i++;
+		}
+
+		place(sample, i);
+		window.add(sample);
+
+		if (windowSize > 0 && window.size() > windowSize) {
+			evict(window.poll());
+		}
+
+		rebalance();
+	}
+
+	/**
+	 * Evicts every sample with a timestamp before a cutoff
+	 *
+	 * @param timestamp the cutoff, samples at or after it are kept
+	 * @return returns the number of samples evicted
+	 */
+	public int evictBefore(long timestamp) {
+		int evicted = 0;
+
+		while (!window.isEmpty() && window.peek().timestamp < timestamp) {
+			evict(window.poll());
+			evicted++;
+		}
+
+		rebalance();
+
+		return evicted;
+	}
+
+	/**
+	 * Gets the current value of a quantile
+	 *
+	 * @param index the index of the quantile, in the order given
+	 *              when the tracker was created
+	 * @return returns the sample at the quantile or null if there are no samples
+	 */
+	public E quantile(int index) {
+		if (index < 0 || index >= quantiles.length) {
+			throw new IndexOutOfBoundsException("No quantile " + index);
+		}
+
+		// A segment is empty if its quantile has the same rank as the one
+		// before, the sample is then at the end of an earlier segment
+		for (int i = index; i >= 0; i--) {
+			if (!segments[i].isEmpty()) {
+				return segments[i].inspectMost().element;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Gets the number of samples being kept
+	 *
+	 * @return returns the number of samples
+	 */
+	public int size() {
+		return window.size();
+	}
+
+	/**
+	 * Checks if there are no samples
+	 *
+	 * @return returns true if there are no samples
+	 */
+	public boolean isEmpty() {
+		return window.isEmpty();
+	}
+
+	/**
+	 * Removes a sample from its segment, rebalance() must be called afterwards
+	 *
+	 * @param sample the sample to remove
+	 */
+	private void evict(Sample<E> sample) {
+		segments[sample.segment].remove(sample.handle);
+	}
+
+	/**
+	 * Adds a sample to a segment and remembers where it is
+	 *
+	 * @param sample  the sample
+	 * @param segment the index of the segment
+	 */
+	private void place(Sample<E> sample, int segment) {
+		sample.handle = segments[segment].insert(sample);
+		sample.segment = segment;
+	}
+
+	/**
+	 * Moves samples across the boundaries between segments until segment i
+	 * ends at the rank of quantile i, working from the first boundary to the
+	 * last so that each boundary only moves samples which are already past
+	 * the boundaries before it
+	 */
+	private void rebalance() {
+		int n = window.size();
+		// The number of samples in the segments so far
+		int count = 0;
+
+		for (int i = 0; i < quantiles.length; i++) {
+			count += segments[i].size();
+			int rank = rank(quantiles[i], n);
+
+			// Too many, the largest go to the next segment
+			while (count > rank) {
+				place(segments[i].getMost(), i + 1);
+				count--;
+			}
+
+			// Too few, take the smallest sample after this segment
+			while (count < rank) {
+				int j = i + 1;
+
+				while (segments[j].isEmpty()) {
+					j++;
+				}
+
+				place(segments[j].getLeast(), i);
+				count++;
+			}
+		}
+	}
+
+	/**
+	 * Gets the rank of a quantile, ceil(q * n), ignoring the rounding error
+	 * of q * n so that 0.95 of 100 samples is rank 95 and not 96
+	 *
+	 * @param q the quantile
+	 * @param n the number of samples
+	 * @return returns the rank, from 1 to n, or 0 if there are no samples
+	 */
+	private static int rank(double q, int n) {
+		if (n == 0) {
+			return 0;
+		}
+
+		double exact = q * n;
+
+		return (int) Math.max(1, Math.min(n, Math.ceil(exact - 4 * Math.ulp(exact))));
+	}
+
+	/**
+	 * A sample along with where it is held
+	 */
+	private static final class Sample<E> {
+
+		/**
+		 * The value of the sample
+		 */
+		final E element;
+
+		/**
+		 * The time of the sample
+		 */
+		final long timestamp;
+
+		/**
+		 * The handle of the sample in its segment
+		 */
+		AddressableDEPQ.Handle<Sample<E>> handle;
+
+		/**
+		 * The index of the segment the sample is in
+		 */
+		int segment;
+
+		/**
+		 * Create a new sample
+		 *
+		 * @param element   the value of the sample
+		 * @param timestamp the time of the sample
+		 */
+		Sample(E element, long timestamp) {
+			this.element = element;
+			this.timestamp = timestamp;
+		}
+	}
+}
@@ -0,0 +1,350 @@
+package cs21120.depq;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Reads and writes the snapshots of the DEPQ implementations. A snapshot
+ * holds the elements exactly as they are laid out in the heap array, so it can
+ * be restored with one linear copy and no comparisons. The format is:
+ * <ul>
+ * <li>the magic number 0x44455051 ("DEPQ") as an int</li>
+ * <li>the type of the elements as a byte (OBJECT, LONG, INT or DOUBLE)</li>
+ * <li>the number of elements as an int</li>
+ * <li>the elements in slot order, written by an Encoder for objects or as
+ * 8, 4 and 8 byte values for longs, ints and doubles</li>
+ * </ul>
+ * Everything is big-endian, the same as DataOutput. The channels are written
+ * and read through a buffer so there is no system call per element.
+ * <p>
+ * The number of elements in the header is not trusted when reading: the
+ * arrays start at no more than INITIAL_ELEMENTS and grow as the elements
+ * arrive, so a corrupt or hostile count can only use as much memory as the
+ * data which is actually there. A negative count or a snapshot which ends
+ * early throws a StreamCorruptedException.
+ *
+ * @author Darren White
+ */
+final class Snapshots {
+
+	/**
+	 * The first four bytes of every snapshot
+	 */
+	static final int MAGIC = 0x44455051;
+
+	/**
+	 * The elements are objects written with an Encoder
+	 */
+	static final byte OBJECT = 0;
+
+	/**
+	 * The elements are long values
+	 */
+	static final byte LONG = 1;
+
+	/**
+	 * The elements are int values
+	 */
+	static final byte INT = 2;
+
+	/**
+	 * The elements are double values
+	 */
+	static final byte DOUBLE = 3;
+
+	/**
+	 * The number of bytes in the header
+	 */
+	private static final int HEADER_BYTES = 9;
+
+	/**
+	 * The size of the buffers used to read and write the channels
+	 */
+	static final int BUFFER_BYTES = 1 << 16;
+
+	/**
+	 * The most elements an array is given before any have been read
+	 */
+	static final int INITIAL_ELEMENTS = 1 << 16;
+
+	private Snapshots() {
+	}
+
+	/**
+	 * Writes the header of a snapshot
+	 *
+	 * @param channel the channel to write to
+	 * @param type    the type of the elements
+	 * @param count   the number of elements
+	 * @throws IOException if the header cannot be written
+	 */
+	static void writeHeader(WritableByteChannel channel, byte type, int count) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES);
+		buffer.putInt(MAGIC).put(type).putInt(count);
+		((Buffer) buffer).flip();
+		writeFully(channel, buffer);
+	}
+
+	/**
+	 * Reads the header of a snapshot, reading no further than its end
+	 *
+	 * @param channel the channel to read from
+	 * @param type    the type of elements expected
+	 * @return returns the number of elements
+	 * @throws IOException if the header cannot be read or is not the expected type
+	 */
+	static int readHeader(ReadableByteChannel channel, byte type) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES);
+		readFully(channel, buffer);
+
+		if (buffer.getInt(0) != MAGIC) {
+			throw new StreamCorruptedException("Not a DEPQ snapshot");
+		}
+
+		if (buffer.get(4) != type) {
+			throw new IOException("Snapshot holds element type " + buffer.get(4) + ", expected " + type);
+		}
+
+		int count = buffer.getInt(5);
+
+		if (count < 0) {
+			throw new StreamCorruptedException("Snapshot is corrupt, it has a size of " + count);
+		}
+
+		return count;
+	}
+
+	/**
+	 * Writes the first count values of an array
+	 *
+	 * @param channel the channel to write to
+	 * @param values  the values to write
+	 * @param count   the number of values to write
+	 * @throws IOException if the values cannot be written
+	 */
+	static void writeLongs(WritableByteChannel channel, long[] values, int count) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+
+		for (int i = 0; i < count; ) {
+			int n = Math.min(count - i, BUFFER_BYTES / Long.BYTES);
+
+			((Buffer) buffer).clear();
+			buffer.asLongBuffer().put(values, i, n);
+			((Buffer) buffer).limit(n * Long.BYTES);
+			writeFully(channel, buffer);
+			i += n;
+		}
+	}
+
+	/**
+	 * Reads values into a new array, which grows as they are read
+	 *
+	 * @param channel   the channel to read from
+	 * @param count     the number of values to read
+	 * @param minLength the smallest length the array can have
+	 * @return returns the array, at least count and minLength long
+	 * @throws IOException if the values cannot be read
+	 */
+	static long[] readLongs(ReadableByteChannel channel, int count, int minLength) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+		long[] values = new long[initialLength(count, minLength)];
+
+		for (int i = 0; i < count; ) {
+			int n = Math.min(count - i, BUFFER_BYTES / Long.BYTES);
+
+			((Buffer) buffer).clear().limit(n * Long.BYTES);
+			readFully(channel, buffer);
+			((Buffer) buffer).flip();
+
+			if (i + n > values.length) {
+				values = Arrays.copyOf(values, grownLength(values.length, i + n, count, minLength));
+			}
+
+			buffer.asLongBuffer().get(values, i, n);
+			i += n;
+		}
+
+		return values;
+	}
+
+	/**
+	 * Writes the first count values of an array
+	 *
+	 * @param channel the channel to write to
+	 * @param values  the values to write
+	 * @param count   the number of values to write
+	 * @throws IOException if the values cannot be written
+	 */
+	static void writeInts(WritableByteChannel channel, int[] values, int count) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+
+		for (int i = 0; i < count; ) {
+			int n = Math.min(count - i, BUFFER_BYTES / Integer.BYTES);
+
+			((Buffer) buffer).clear();
+			buffer.asIntBuffer().put(values, i, n);
+			((Buffer) buffer).limit(n * Integer.BYTES);
+			writeFully(channel, buffer);
+			i += n;
+		}
+	}
+
+	/**
+	 * Reads values into a new array, which grows as they are read
+	 *
+	 * @param channel   the channel to read from
+	 * @param count     the number of values to read
+	 * @param minLength the smallest length the array can have
+	 * @return returns the array, at least count and minLength long
+	 * @throws IOException if the values cannot be read
+	 */
+	static int[] readInts(ReadableByteChannel channel, int count, int minLength) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+		int[] values = new int[initialLength(count, minLength)];
+
+		for (int i = 0; i < count; ) {
+			int n = Math.min(count - i, BUFFER_BYTES / Integer.BYTES);
+
+			((Buffer) buffer).clear().limit(n * Integer.BYTES);
+			readFully(channel, buffer);
+			((Buffer) buffer).flip();
+
+			if (i + n > values.length) {
+				values = Arrays.copyOf(values, grownLength(values.length, i + n, count, minLength));
+			}
+
+			buffer.asIntBuffer().get(values, i, n);
+			i += n;
+		}
+
+		return values;
+	}
+
+	/**
+	 * Writes the first count values of an array
+	 *
+	 * @param channel the channel to write to
+	 * @param values  the values to write
+	 * @param count   the number of values to write
+	 * @throws IOException if the values cannot be written
+	 */
+	static void writeDoubles(WritableByteChannel channel, double[] values, int count) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+
+		for (int i = 0; i < count; ) {
+			int n = Math.min(count - i, BUFFER_BYTES / Double.BYTES);
+
+			((Buffer) buffer).clear();
+			buffer.asDoubleBuffer().put(values, i, n);
+			((Buffer) buffer).limit(n * Double.BYTES);
+			writeFully(channel, buffer);
+			i += n;
+		}
+	}
+
+	/**
+	 * Reads values into a new array, which grows as they are read
+	 *
+	 * @param channel   the channel to read from
+	 * @param count     the number of values to read
+	 * @param minLength the smallest length the array can have
+	 * @return returns the array, at least count and minLength long
+	 * @throws IOException if the values cannot be read
+	 */
+	static double[] readDoubles(ReadableByteChannel channel, int count, int minLength) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+		double[] values = new double[initialLength(count, minLength)];
+
+		for (int i = 0; i < count; ) {
+			int n = Math.min(count - i, BUFFER_BYTES / Double.BYTES);
+
+			((Buffer) buffer).clear().limit(n * Double.BYTES);
+			readFully(channel, buffer);
+			((Buffer) buffer).flip();
+
+			if (i + n > values.length) {
+				values = Arrays.copyOf(values, grownLength(values.length, i + n, count, minLength));
+			}
+
+			buffer.asDoubleBuffer().get(values, i, n);
+			i += n;
+		}
+
+		return values;
+	}
+
+	/**
+	 * Gets the length of an array before any elements have been read
+	 *
+	 * @param count     the number of elements in the header
+	 * @param minLength the smallest length the array can have
+	 * @return returns the length
+	 */
+	static int initialLength(int count, int minLength) {
+		return Math.max(Math.min(count, INITIAL_ELEMENTS), minLength);
+	}
+
+	/**
+	 * Gets the length to grow an array to when it is full, doubling it
+	 * but never past what the whole snapshot needs
+	 *
+	 * @param length    the current length
+	 * @param needed    the length needed now
+	 * @param count     the number of elements in the header
+	 * @param minLength the smallest length the array can have
+	 * @return returns the new length
+	 */
+	static int grownLength(int length, int needed, int count, int minLength) {
+		return (int) Math.max(Math.min((long) length << 1, Math.max(count, minLength)), needed);
+	}
+
+	/**
+	 * Writes everything remaining in a buffer, a channel
+	 * may write less than asked each time
+	 *
+	 * @param channel the channel to write to
+	 * @param buffer  the bytes to write
+	 * @throws IOException if the bytes cannot be written
+	 */
+	private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * Fills the remaining space in a buffer, a channel
+	 * may read less than asked each time
+	 *
+	 * @param channel the channel to read from
+	 * @param buffer  the buffer to fill
+	 * @throws IOException if the channel ends before the buffer is full
+	 */
+	private static void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) {
+				throw truncated(null);
+			}
+		}
+	}
+
+	/**
+	 * Creates the exception thrown when a snapshot ends before
+	 * all of its elements have been read
+	 *
+	 * @param cause the exception thrown by the read, or null
+	 * @return returns the exception
+	 */
+	static StreamCorruptedException truncated(EOFException cause) {
+		StreamCorruptedException e = new StreamCorruptedException("Snapshot ended early");
+		e.initCause(cause);
+
+		return e;
+	}
+}